@@ -0,0 +1,59 @@
+package red.zyc.babydogepaws;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import red.zyc.babydogepaws.common.util.JsonBodyHandler;
+import red.zyc.babydogepaws.model.persistent.BabyDogePawsUser;
+import red.zyc.babydogepaws.model.response.CardsSnapshot;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 基准测试共用的数据，json文件是按照真实接口响应的结构构造的
+ *
+ * @author allurx
+ */
+public final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    /**
+     * @param name src/jmh/resources下的文件名
+     * @return 文件内容
+     */
+    public static byte[] bytes(String name) {
+        try (InputStream in = Fixtures.class.getClassLoader().getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IllegalArgumentException(name);
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return /cards接口响应的卡片分类列表
+     */
+    public static List<CardsSnapshot.CardCategory> cardCategories() {
+        try {
+            return JsonBodyHandler.OBJECT_MAPPER.readValue(bytes("cards.json"), new TypeReference<>() {
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static BabyDogePawsUser user() {
+        var user = new BabyDogePawsUser();
+        user.id = 1;
+        user.phoneNumber = "8613800000000";
+        user.xApiKey = "3f0c9a3e-5b1d-4c1e-9a8e-2b7f6d5c4a3b";
+        user.maximumCardUpgradePrice = BigDecimal.valueOf(5000);
+        return user;
+    }
+}
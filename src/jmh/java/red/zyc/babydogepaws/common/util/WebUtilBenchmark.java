@@ -0,0 +1,97 @@
+package red.zyc.babydogepaws.common.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import red.zyc.babydogepaws.Fixtures;
+
+import javax.net.ssl.SSLSession;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 请求日志中响应的格式化，body为字符串时会先尝试解析成json
+ *
+ * @author allurx
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WebUtilBenchmark {
+
+    private HttpResponse<?> mine;
+    private HttpResponse<?> cards;
+
+    @Setup
+    public void setup() {
+        mine = new StringResponse(HttpRequest.newBuilder(URI.create("https://backend.babydogepawsbot.com/mine")).POST(HttpRequest.BodyPublishers.noBody()).build(),
+                new String(Fixtures.bytes("mine.json"), StandardCharsets.UTF_8));
+        cards = new StringResponse(HttpRequest.newBuilder(URI.create("https://backend.babydogepawsbot.com/cards")).GET().build(),
+                new String(Fixtures.bytes("cards.json"), StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public String mineWithBody() {
+        return WebUtil.formatJsonResponse(mine, true);
+    }
+
+    @Benchmark
+    public String cardsWithBody() {
+        return WebUtil.formatJsonResponse(cards, true);
+    }
+
+    @Benchmark
+    public String cardsWithoutBody() {
+        return WebUtil.formatJsonResponse(cards, false);
+    }
+
+    private record StringResponse(HttpRequest request, String body) implements HttpResponse<String> {
+
+        @Override
+        public int statusCode() {
+            return 200;
+        }
+
+        @Override
+        public Optional<HttpResponse<String>> previousResponse() {
+            return Optional.empty();
+        }
+
+        @Override
+        public HttpHeaders headers() {
+            return HttpHeaders.of(Map.of(), (name, value) -> true);
+        }
+
+        @Override
+        public Optional<SSLSession> sslSession() {
+            return Optional.empty();
+        }
+
+        @Override
+        public URI uri() {
+            return request.uri();
+        }
+
+        @Override
+        public HttpClient.Version version() {
+            return HttpClient.Version.HTTP_1_1;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package red.zyc.babydogepaws.dao;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import red.zyc.babydogepaws.config.BabyDogePawsProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 对比虚拟线程直接访问数据库和通过{@link DatabaseExecutor}访问数据库时承载线程的利用率，
+ * 用一个在监视器锁中阻塞的方法模拟MySQL驱动的I/O：
+ * <ul>
+ *     <li>batch：一组虚拟线程同时执行数据库操作，全部完成的耗时</li>
+ *     <li>probe：后台持续有虚拟线程执行数据库操作时，另一个虚拟线程睡眠1ms后重新被调度的耗时，承载线程被钉住时会明显变长</li>
+ * </ul>
+ * 承载线程数必须在创建第一个虚拟线程之前固定下来并且不允许补偿，所以通过fork出来的JVM参数设置
+ *
+ * @author allurx
+ */
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Djdk.virtualThreadScheduler.parallelism=4", "-Djdk.virtualThreadScheduler.maxPoolSize=4"})
+public class DatabaseExecutorBenchmark {
+
+    private static final int CALLERS = 200;
+    private static final int CALLS_PER_CALLER = 10;
+    private static final int LOAD_CALLERS = 50;
+    private static final long LATENCY_MILLIS = 5;
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void batch(Database database) {
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CALLERS; i++) {
+                executor.execute(() -> {
+                    for (int j = 0; j < CALLS_PER_CALLER; j++) database.call();
+                });
+            }
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void probe(Load load) throws InterruptedException {
+        Thread.ofVirtual().start(() -> sleep(1)).join();
+    }
+
+    /**
+     * 访问数据库的方式
+     */
+    @State(Scope.Benchmark)
+    public static class Database {
+
+        /**
+         * direct：虚拟线程直接访问数据库，executor：通过{@link DatabaseExecutor}访问数据库
+         */
+        @Param({"direct", "executor"})
+        public String mode;
+
+        private DatabaseExecutor databaseExecutor;
+
+        @Setup
+        public void setup() {
+            databaseExecutor = new DatabaseExecutor(new BabyDogePawsProperties(null, null, null, null, null, null, null, null, null, null,
+                    new BabyDogePawsProperties.DatabaseExecutor(10, 1000), null, null, null, null, null));
+        }
+
+        @TearDown
+        public void tearDown() throws InterruptedException {
+            databaseExecutor.shutdown();
+        }
+
+        private int call() {
+            return "direct".equals(mode) ? query() : databaseExecutor.call(DatabaseExecutorBenchmark::query);
+        }
+    }
+
+    /**
+     * probe期间在后台持续访问数据库的虚拟线程
+     */
+    @State(Scope.Benchmark)
+    public static class Load {
+
+        private final AtomicBoolean running = new AtomicBoolean();
+        private final List<Thread> callers = new ArrayList<>();
+
+        @Setup(Level.Iteration)
+        public void start(Database database) {
+            running.set(true);
+            for (int i = 0; i < LOAD_CALLERS; i++) {
+                callers.add(Thread.ofVirtual().start(() -> {
+                    while (running.get()) database.call();
+                }));
+            }
+        }
+
+        @TearDown(Level.Iteration)
+        public void stop() throws InterruptedException {
+            running.set(false);
+            for (Thread caller : callers) caller.join();
+            callers.clear();
+        }
+    }
+
+    /**
+     * 模拟MySQL驱动在持有监视器锁的情况下等待socket响应
+     */
+    private static int query() {
+        synchronized (new Object()) {
+            sleep(LATENCY_MILLIS);
+        }
+        return 1;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
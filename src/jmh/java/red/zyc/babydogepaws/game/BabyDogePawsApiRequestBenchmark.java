@@ -0,0 +1,70 @@
+package red.zyc.babydogepaws.game;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import red.zyc.babydogepaws.Fixtures;
+import red.zyc.babydogepaws.game.BabyDogePawsApiRequest.Request;
+import red.zyc.babydogepaws.model.persistent.Card;
+import red.zyc.babydogepaws.model.request.BabyDogePawsGameRequestParam;
+import red.zyc.babydogepaws.model.request.Mine;
+import red.zyc.babydogepaws.model.request.UpgradeCard;
+
+import java.math.BigDecimal;
+import java.net.http.HttpRequest;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 构造游戏接口的{@link HttpRequest}，包括公共请求头以及json请求体的序列化
+ *
+ * @author allurx
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BabyDogePawsApiRequestBenchmark {
+
+    private BabyDogePawsGameRequestParam param;
+    private Mine mine;
+    private UpgradeCard upgradeCard;
+
+    @Setup
+    public void setup() {
+        var user = Fixtures.user();
+        var category = Fixtures.cardCategories().getFirst();
+        var cardInfo = category.cards().getFirst();
+        param = new BabyDogePawsGameRequestParam(user);
+        mine = new Mine(user, 497);
+        upgradeCard = new UpgradeCard(user, BigDecimal.valueOf(128734562), Card.of(category.name(), cardInfo), UpgradeCard.UpgradeInfo.of(cardInfo), cardInfo.available());
+    }
+
+    @Benchmark
+    public HttpRequest getMe() {
+        return Request.GET_ME.build(param);
+    }
+
+    @Benchmark
+    public HttpRequest listCards() {
+        return Request.LIST_CARDS.build(param);
+    }
+
+    @Benchmark
+    public HttpRequest mine() {
+        return Request.MINE.build(mine);
+    }
+
+    @Benchmark
+    public HttpRequest upgradeCard() {
+        return Request.UPGRADE_CARD.build(upgradeCard);
+    }
+}
@@ -0,0 +1,84 @@
+package red.zyc.babydogepaws.game;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import red.zyc.babydogepaws.Fixtures;
+import red.zyc.babydogepaws.model.response.CardsSnapshot;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 卡片排序：每次比较都用BigDecimal相除计算价格的旧方式，与{@link CardEconomics}预先计算定点数价格的方式对比
+ *
+ * @author allurx
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CardUpgradePlannerBenchmark {
+
+    private static final Comparator<CardsSnapshot.CardInfo> BIG_DECIMAL_ORDER = Comparator.<CardsSnapshot.CardInfo, BigDecimal>comparing(card -> card.cost().divide(card.profit(), 2, RoundingMode.HALF_UP))
+            .thenComparing(CardsSnapshot.CardInfo::cost);
+
+    private final BigDecimal balance = BigDecimal.valueOf(128734562);
+    private final BigDecimal maximumPrice = BigDecimal.valueOf(5000);
+    private List<CardsSnapshot.CardCategory> categories;
+    private List<CardsSnapshot.CardInfo> upgradable;
+
+    @Setup
+    public void setup() {
+        categories = Fixtures.cardCategories();
+        upgradable = categories.stream()
+                .flatMap(category -> category.cards().stream())
+                .filter(card -> card.available() && card.profit().signum() > 0)
+                .toList();
+    }
+
+    @Benchmark
+    public void bigDecimalPrice(Blackhole blackhole) {
+        for (var card : upgradable) {
+            blackhole.consume(card.cost().divide(card.profit(), 2, RoundingMode.HALF_UP));
+        }
+    }
+
+    @Benchmark
+    public void fixedPointPrice(Blackhole blackhole) {
+        for (var card : upgradable) {
+            blackhole.consume(CardEconomics.of("category", card));
+        }
+    }
+
+    @Benchmark
+    public List<CardsSnapshot.CardInfo> bigDecimalRank() {
+        var cards = new ArrayList<>(upgradable);
+        cards.sort(BIG_DECIMAL_ORDER);
+        return cards;
+    }
+
+    @Benchmark
+    public List<CardEconomics> fixedPointRank() {
+        return CardEconomics.rank(categories);
+    }
+
+    @Benchmark
+    public List<CardEconomics> plan() {
+        return new CardUpgradePlanner(balance, categories, maximumPrice).plan();
+    }
+}
@@ -0,0 +1,65 @@
+package red.zyc.babydogepaws.model.request;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import red.zyc.babydogepaws.Fixtures;
+import red.zyc.babydogepaws.model.persistent.BabyDogePawsUser;
+import red.zyc.babydogepaws.model.persistent.Card;
+import red.zyc.babydogepaws.model.response.CardsSnapshot;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对/cards响应中的每张卡片构造{@link UpgradeCard}，以及需要持久化卡片升级信息时额外调用的{@link UpgradeCard.UpgradeInfo#buildJsonFunctionParam()}
+ *
+ * @author allurx
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UpgradeCardBenchmark {
+
+    private final BigDecimal balance = BigDecimal.valueOf(128734562);
+    private BabyDogePawsUser user;
+    private List<CardsSnapshot.CardCategory> categories;
+
+    @Setup
+    public void setup() {
+        user = Fixtures.user();
+        categories = Fixtures.cardCategories();
+    }
+
+    @Benchmark
+    public void construct(Blackhole blackhole) {
+        for (var category : categories) {
+            for (var cardInfo : category.cards()) {
+                blackhole.consume(new UpgradeCard(user, balance, Card.of(category.name(), cardInfo), UpgradeCard.UpgradeInfo.of(cardInfo), cardInfo.available()));
+            }
+        }
+    }
+
+    @Benchmark
+    public void constructAndBuildJsonFunctionParam(Blackhole blackhole) {
+        for (var category : categories) {
+            for (var cardInfo : category.cards()) {
+                var upgradeInfo = UpgradeCard.UpgradeInfo.of(cardInfo);
+                upgradeInfo.buildJsonFunctionParam();
+                blackhole.consume(new UpgradeCard(user, balance, Card.of(category.name(), cardInfo), upgradeInfo, cardInfo.available()));
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package red.zyc.babydogepaws.model.response;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import red.zyc.babydogepaws.Fixtures;
+import red.zyc.babydogepaws.common.constant.Constants;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static red.zyc.babydogepaws.common.util.JsonBodyHandler.OBJECT_MAPPER;
+import static red.zyc.kit.json.JsonOperator.JACKSON_OPERATOR;
+
+/**
+ * /cards以及/mine接口响应的反序列化<br>
+ * typed是{@link red.zyc.babydogepaws.common.util.JsonBodyHandler}直接从字节反序列化成record的方式，
+ * map是通过JACKSON_OPERATOR先把字符串解析成Map的方式
+ *
+ * @author allurx
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseDecodeBenchmark {
+
+    private final JavaType cardCategoriesType = OBJECT_MAPPER.constructType(new TypeReference<List<CardsSnapshot.CardCategory>>() {
+    });
+    private final JavaType mineResultType = OBJECT_MAPPER.constructType(MineResult.class);
+
+    private byte[] cardsBytes;
+    private String cardsString;
+    private byte[] mineBytes;
+    private String mineString;
+
+    @Setup
+    public void setup() {
+        cardsBytes = Fixtures.bytes("cards.json");
+        cardsString = new String(cardsBytes, StandardCharsets.UTF_8);
+        mineBytes = Fixtures.bytes("mine.json");
+        mineString = new String(mineBytes, StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public List<CardsSnapshot.CardCategory> cardsTyped() throws IOException {
+        return OBJECT_MAPPER.readValue(cardsBytes, cardCategoriesType);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> cardsMap() {
+        return JACKSON_OPERATOR.fromJsonString(cardsString, Constants.LIST_OBJECT_DATA_TYPE);
+    }
+
+    @Benchmark
+    public MineResult mineTyped() throws IOException {
+        return OBJECT_MAPPER.readValue(mineBytes, mineResultType);
+    }
+
+    @Benchmark
+    public Map<String, Object> mineMap() {
+        return JACKSON_OPERATOR.fromJsonString(mineString, Constants.OBJECT_DATA_TYPE);
+    }
+}
@@ -43,9 +43,6 @@ public class TODO {
      *         {@link BabyDogePawsApi}方法入参优化，应该是最底层的外部接口实际入参
      *     </li>
      *     <li>
-     *         优化挖矿间隔和次数计算逻辑
-     *     </li>
-     *     <li>
      *         {@link ExpectedConditions#elementToBeClickable(By)}方法无法保证元素一定能够点击，需要尝试多种点击方式
      *     </li>
      * </ol>
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2024 allurx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package red.zyc.babydogepaws.common.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.sift.AbstractDiscriminator;
+
+/**
+ * 按照日志级别区分日志事件，配合{@link ch.qos.logback.classic.sift.SiftingAppender}把每个级别的日志写入各自的文件，
+ * 代替每个级别一个带有{@link ch.qos.logback.classic.filter.LevelFilter}的appender，每个日志事件只需要经过一次路由
+ *
+ * @author allurx
+ */
+public class LevelDiscriminator extends AbstractDiscriminator<ILoggingEvent> {
+
+    private static final String KEY = "level";
+
+    @Override
+    public String getDiscriminatingValue(ILoggingEvent event) {
+        return switch (event.getLevel().toInt()) {
+            case Level.TRACE_INT -> "trace";
+            case Level.DEBUG_INT -> "debug";
+            case Level.INFO_INT -> "info";
+            case Level.WARN_INT -> "warn";
+            default -> "error";
+        };
+    }
+
+    @Override
+    public String getKey() {
+        return KEY;
+    }
+}
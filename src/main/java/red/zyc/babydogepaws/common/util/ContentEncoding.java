@@ -0,0 +1,132 @@
+/*
+ * Copyright 2024 allurx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package red.zyc.babydogepaws.common.util;
+
+import org.brotli.dec.BrotliInputStream;
+import red.zyc.babydogepaws.exception.BabyDogePawsApiException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.net.http.HttpHeaders;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * http响应支持的Content-Encoding，{@link java.net.http.HttpClient}本身不会对响应进行解压缩，
+ * 请求头Accept-Encoding只能声明这里支持的编码
+ *
+ * @author allurx
+ */
+public enum ContentEncoding {
+
+    GZIP("gzip") {
+        @Override
+        public InputStream decode(InputStream in) throws IOException {
+            return new GZIPInputStream(in, BUFFER_SIZE);
+        }
+    },
+
+    DEFLATE("deflate") {
+        @Override
+        public InputStream decode(InputStream in) throws IOException {
+
+            // http规范中的deflate是zlib格式，但是有些服务器返回的是不带zlib头的原始deflate数据，需要根据前两个字节判断一下
+            var pushback = new PushbackInputStream(in, 2);
+            var header = pushback.readNBytes(2);
+            pushback.unread(header);
+            var zlibWrapped = header.length == 2
+                    && (header[0] & 0x0F) == 8
+                    && (((header[0] & 0xFF) << 8) | (header[1] & 0xFF)) % 31 == 0;
+            return new InflaterInputStream(pushback, new Inflater(!zlibWrapped), BUFFER_SIZE);
+        }
+    },
+
+    BROTLI("br") {
+        @Override
+        public InputStream decode(InputStream in) throws IOException {
+            return new BrotliInputStream(in);
+        }
+    },
+
+    IDENTITY("identity") {
+        @Override
+        public InputStream decode(InputStream in) {
+            return in;
+        }
+    },
+    ;
+
+    /**
+     * 请求头Accept-Encoding的值
+     */
+    public static final String ACCEPT_ENCODING = Arrays.stream(values())
+            .filter(encoding -> encoding != IDENTITY)
+            .map(encoding -> encoding.token)
+            .collect(Collectors.joining(", "));
+
+    private static final int BUFFER_SIZE = 8192;
+
+    public final String token;
+
+    ContentEncoding(String token) {
+        this.token = token;
+    }
+
+    /**
+     * 对响应流进行解压缩
+     *
+     * @param in 响应流
+     * @return 解压缩后的流
+     * @throws IOException 异常
+     */
+    public abstract InputStream decode(InputStream in) throws IOException;
+
+    /**
+     * 根据响应头Content-Encoding对响应流进行解压缩，
+     * 如果响应使用了多种编码，则按照编码顺序的逆序依次解压缩
+     *
+     * @param headers 响应头
+     * @param in      响应流
+     * @return 解压缩后的流
+     * @throws IOException 异常
+     */
+    public static InputStream decode(HttpHeaders headers, InputStream in) throws IOException {
+        var encodings = headers.allValues("Content-Encoding").stream()
+                .flatMap(value -> Arrays.stream(value.split(",")))
+                .map(String::trim)
+                .filter(value -> !value.isEmpty())
+                .map(ContentEncoding::of)
+                .toList();
+        var decoded = in;
+        for (ContentEncoding encoding : encodings.reversed()) {
+            decoded = encoding.decode(decoded);
+        }
+        return decoded;
+    }
+
+    private static ContentEncoding of(String token) {
+        var lowerCase = token.toLowerCase(Locale.ROOT);
+        return Arrays.stream(values())
+                .filter(encoding -> encoding.token.equals(lowerCase))
+                .findFirst()
+                .orElseThrow(() -> new BabyDogePawsApiException("不支持的Content-Encoding: " + token));
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2024 allurx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package red.zyc.babydogepaws.common.util;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+
+/**
+ * 直接从响应流中将json反序列化为指定类型对象的{@link HttpResponse.BodyHandler}，
+ * 避免先将body读取成字符串再解析成中间{@link java.util.Map}。<br>
+ * 只有响应码为200时才会按照json解析body，其它响应码的body会作为字符串保留下来用于输出日志。<br>
+ * 响应body会根据Content-Encoding以流的方式解压缩，参考{@link ContentEncoding}。
+ *
+ * @param <T> 反序列化的目标类型
+ * @author allurx
+ */
+public final class JsonBodyHandler<T> implements HttpResponse.BodyHandler<JsonBodyHandler.JsonBody<T>> {
+
+    public static final ObjectMapper OBJECT_MAPPER = JsonMapper.builder()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+
+    private final JavaType type;
+
+    private JsonBodyHandler(JavaType type) {
+        this.type = type;
+    }
+
+    public static <T> JsonBodyHandler<T> of(Class<T> type) {
+        return new JsonBodyHandler<>(OBJECT_MAPPER.constructType(type));
+    }
+
+    public static <T> JsonBodyHandler<T> of(TypeReference<T> type) {
+        return new JsonBodyHandler<>(OBJECT_MAPPER.constructType(type));
+    }
+
+    public static <T> JsonBodyHandler<T> of(JavaType type) {
+        return new JsonBodyHandler<>(type);
+    }
+
+    @Override
+    public HttpResponse.BodySubscriber<JsonBody<T>> apply(HttpResponse.ResponseInfo responseInfo) {
+        var headers = responseInfo.headers();
+        if (responseInfo.statusCode() != 200) {
+
+            // 失败的响应body一般很小，并且此时body已经全部接收完毕，可以直接在内存中解压缩
+            return HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofByteArray(), bytes -> JsonBody.error(readString(headers, bytes)));
+        }
+
+        // 注意：mapping函数可能会在HttpClient的内部线程中同步执行，不能在其中阻塞读取InputStream，
+        // 所以这里只是包装一个延迟读取的Supplier，真正的解压缩和反序列化在调用JsonBody#data()的线程中执行
+        return HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofInputStream(), in -> JsonBody.lazy(() -> read(headers, in)));
+    }
+
+    private T read(HttpHeaders headers, InputStream in) {
+
+        // 原始流单独作为一个资源，保证解压缩流创建失败（例如gzip头不正确）时响应流依旧会被关闭
+        try (in; var decoded = ContentEncoding.decode(headers, in)) {
+            return OBJECT_MAPPER.readValue(decoded, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String readString(HttpHeaders headers, byte[] bytes) {
+        try (var decoded = ContentEncoding.decode(headers, new ByteArrayInputStream(bytes))) {
+            return new String(decoded.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (Throwable t) {
+
+            // 解压缩失败时直接返回原始body，保证失败的响应依旧能够被记录下来
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * 响应body，响应成功时为反序列化后的对象，否则为原始的字符串
+     *
+     * @param <T> 反序列化的目标类型
+     */
+    public static final class JsonBody<T> {
+
+        private final Supplier<T> decoder;
+        private final String error;
+        private T data;
+        private boolean decoded;
+
+        private JsonBody(Supplier<T> decoder, String error) {
+            this.decoder = decoder;
+            this.error = error;
+        }
+
+        static <T> JsonBody<T> lazy(Supplier<T> decoder) {
+            return new JsonBody<>(decoder, null);
+        }
+
+        static <T> JsonBody<T> error(String error) {
+            return new JsonBody<>(() -> null, error);
+        }
+
+        /**
+         * 获取反序列化后的对象，第一次调用时才会从响应流中读取数据，
+         * 响应成功时调用方必须调用一次这个方法，否则响应流不会被消费，底层连接也就无法被复用
+         *
+         * @return 反序列化后的对象，响应失败时为null
+         */
+        public T data() {
+            if (!decoded) {
+                data = decoder.get();
+                decoded = true;
+            }
+            return data;
+        }
+
+        /**
+         * @return 响应失败时的原始body
+         */
+        public String error() {
+            return error;
+        }
+    }
+}
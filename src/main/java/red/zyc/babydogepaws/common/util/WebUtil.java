@@ -33,7 +33,19 @@ public final class WebUtil {
     }
 
     /**
-     * 将{@link HttpResponse#body()}作为json字符串，格式化输出当前响应的详细信息
+     * 获取{@link JsonBodyHandler}从响应流中直接反序列化出来的对象
+     *
+     * @param response {@link HttpResponse}
+     * @param <T>      对象的具体类型
+     * @return 反序列化后的对象
+     */
+    public static <T> Optional<T> parseJsonResponse(HttpResponse<JsonBodyHandler.JsonBody<T>> response) {
+        return Optional.ofNullable(response.body()).map(JsonBodyHandler.JsonBody::data);
+    }
+
+    /**
+     * 将{@link HttpResponse#body()}作为json，格式化输出当前响应的详细信息，
+     * body可以是json字符串，也可以是{@link JsonBodyHandler.JsonBody}
      * <br><br>
      * 参考{@link jdk.internal.net.http.HttpResponseImpl#toString()}
      *
@@ -41,7 +53,7 @@ public final class WebUtil {
      * @param containsBody 是否需要包含body数据
      * @return {@link HttpResponse}格式化后的字符串
      */
-    public static String formatJsonResponse(HttpResponse<String> response, boolean containsBody) {
+    public static String formatJsonResponse(HttpResponse<?> response, boolean containsBody) {
         record JsonResponse(String method, String uri, int code, Object body) {
         }
         return JACKSON_OPERATOR.toJsonString(
@@ -49,7 +61,7 @@ public final class WebUtil {
                         response.request().method(),
                         response.request().uri().toString(),
                         response.statusCode(),
-                        containsBody ? tryConvert(response.body()) : "ignored"));
+                        containsBody ? convertBody(response.body()) : "ignored"));
     }
 
     /**
@@ -65,6 +77,20 @@ public final class WebUtil {
         servletResponse.getWriter().write(JACKSON_OPERATOR.toJsonString(response));
     }
 
+    /**
+     * 将body转换成能够被序列化成json的对象
+     *
+     * @param body 响应body
+     * @return 转换结果
+     */
+    private static Object convertBody(Object body) {
+        return switch (body) {
+            case String s -> tryConvert(s);
+            case JsonBodyHandler.JsonBody<?> jsonBody -> jsonBody.error() != null ? tryConvert(jsonBody.error()) : jsonBody.data();
+            case null, default -> body;
+        };
+    }
+
     /**
      * 尝试将body作为json字符串进行反序列化
      *
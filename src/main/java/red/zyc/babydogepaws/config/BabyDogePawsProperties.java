@@ -16,8 +16,13 @@
 package red.zyc.babydogepaws.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author allurx
@@ -25,7 +30,21 @@ import java.util.List;
 @ConfigurationProperties(prefix = "baby-doge-paws")
 public record BabyDogePawsProperties(
         Chrome chrome,
-        List<String> cardUpgradeInfoTracker
+        List<String> cardUpgradeInfoTracker,
+        @DefaultValue MiningInfoWriter miningInfoWriter,
+        @DefaultValue RateLimit rateLimit,
+        @DefaultValue CircuitBreaker circuitBreaker,
+        @DefaultValue UserState userState,
+        @DefaultValue UserRegistry userRegistry,
+        @DefaultValue Bootstrap bootstrap,
+        @DefaultValue TaskCheckpointStore taskCheckpointStore,
+        @DefaultValue TimingWheel timingWheel,
+        @DefaultValue DatabaseExecutor databaseExecutor,
+        @DefaultValue PinningDetector pinningDetector,
+        @DefaultValue Jfr jfr,
+        @DefaultValue Http http,
+        @DefaultValue Simulator simulator,
+        @DefaultValue ApiLog apiLog
 
 ) {
 
@@ -33,4 +52,241 @@ public record BabyDogePawsProperties(
     public record Chrome(String rootDataDir) {
     }
 
+    /**
+     * 挖矿信息异步批量写入配置
+     *
+     * @param batchSize     单次批量insert的最大行数
+     * @param flushInterval 缓冲区中的数据最多等待多久就必须写入数据库
+     * @param capacity      缓冲区容量，缓冲区满了之后写入方会被阻塞
+     * @param offerTimeout  写入方最多被阻塞的时间，超时后直接同步写入数据库
+     */
+    public record MiningInfoWriter(@DefaultValue("200") int batchSize,
+                                   @DefaultValue("5s") Duration flushInterval,
+                                   @DefaultValue("10000") int capacity,
+                                   @DefaultValue("3s") Duration offerTimeout) {
+    }
+
+    /**
+     * 游戏接口客户端限流配置
+     *
+     * @param permitsPerSecond 所有接口每秒允许发起的请求数，小于等于0时不限流
+     * @param burst            所有接口允许的突发请求数
+     * @param maxWait          请求等待令牌的最长时间，超过这个时间的请求会被直接拒绝
+     * @param endpoints        单个接口的限流配置，key为接口名称，例如upgrade-card
+     * @param backoff          响应码为429或者5xx时的退避配置
+     */
+    public record RateLimit(@DefaultValue("30") double permitsPerSecond,
+                            @DefaultValue("60") int burst,
+                            @DefaultValue("30s") Duration maxWait,
+                            Map<String, Bucket> endpoints,
+                            @DefaultValue Backoff backoff) {
+
+        public RateLimit {
+            endpoints = endpoints == null ? Map.of() : endpoints;
+        }
+    }
+
+    /**
+     * 令牌桶配置
+     *
+     * @param permitsPerSecond 每秒允许发起的请求数，小于等于0时不限流
+     * @param burst            允许的突发请求数
+     */
+    public record Bucket(double permitsPerSecond, int burst) {
+    }
+
+    /**
+     * 指数退避配置，实际退避时间会在[delay/2, delay]之间随机抖动
+     *
+     * @param initialDelay 第一次重试前的退避时间
+     * @param maxDelay     最大退避时间，Retry-After超过这个时间时不再重试
+     * @param multiplier   每次重试退避时间的倍数
+     */
+    public record Backoff(@DefaultValue("1s") Duration initialDelay,
+                          @DefaultValue("60s") Duration maxDelay,
+                          @DefaultValue("2") double multiplier) {
+    }
+
+    /**
+     * 游戏服务器熔断配置
+     *
+     * @param failureThreshold 连续失败多少次后打开熔断器
+     * @param openDuration     熔断器打开后多久发送探测请求
+     */
+    public record CircuitBreaker(@DefaultValue("10") int failureThreshold,
+                                 @DefaultValue("60s") Duration openDuration) {
+    }
+
+    /**
+     * 用户状态快照配置
+     *
+     * @param maxAge 快照的最长有效期，过期后需要重新调用getMe获取用户信息
+     */
+    public record UserState(@DefaultValue("5m") Duration maxAge) {
+    }
+
+    /**
+     * 用户注册表配置
+     *
+     * @param refreshInterval 按照修改时间增量刷新用户的间隔
+     */
+    public record UserRegistry(@DefaultValue("1m") Duration refreshInterval) {
+    }
+
+    /**
+     * 启动预热配置
+     *
+     * @param warmUp                   预热窗口，所有用户会按照固定的偏移量分散在这个窗口内激活
+     * @param maxConcurrentActivations 同一时刻最多正在激活的用户数
+     */
+    public record Bootstrap(@DefaultValue("10m") Duration warmUp,
+                            @DefaultValue("10") int maxConcurrentActivations) {
+    }
+
+    /**
+     * 定时任务检查点存储配置
+     *
+     * @param flushInterval     内存中的检查点写入数据库的间隔
+     * @param loadRetryInterval 从数据库加载检查点失败后再次尝试加载的间隔
+     */
+    public record TaskCheckpointStore(@DefaultValue("10s") Duration flushInterval,
+                                      @DefaultValue("1m") Duration loadRetryInterval) {
+    }
+
+    /**
+     * 定时任务时间轮配置
+     *
+     * @param tick      每个tick的跨度，也就是任务调度的精度
+     * @param wheelSize 每层的槽数，会向上取整为2的幂
+     * @param levels    层数，最高层的跨度为tick * wheelSize^levels
+     */
+    public record TimingWheel(@DefaultValue("100ms") Duration tick,
+                              @DefaultValue("256") int wheelSize,
+                              @DefaultValue("4") int levels) {
+    }
+
+    /**
+     * 数据库线程池配置
+     *
+     * @param threads       执行数据库操作的平台线程数，不应该超过连接池的最大连接数
+     * @param queueCapacity 等待执行的数据库操作的队列容量，队列满了之后提交方会被阻塞
+     */
+    public record DatabaseExecutor(@DefaultValue("10") int threads,
+                                   @DefaultValue("1000") int queueCapacity) {
+    }
+
+    /**
+     * 虚拟线程钉住检测配置，只在dev环境下生效
+     *
+     * @param threshold  虚拟线程被钉住超过这个时间才会记录
+     * @param stackDepth 日志中打印的栈帧数
+     */
+    public record PinningDetector(@DefaultValue("20ms") Duration threshold,
+                                  @DefaultValue("8") int stackDepth) {
+    }
+
+    /**
+     * 飞行记录配置
+     *
+     * @param directory 飞行记录导出的目录
+     * @param settings  默认使用的JDK自带配置名称（default或者profile）
+     * @param maxAge    记录中保留的最长时间的数据
+     * @param maxSize   记录中保留的最大数据量
+     */
+    public record Jfr(@DefaultValue("jfr") String directory,
+                      @DefaultValue("profile") String settings,
+                      @DefaultValue("1h") Duration maxAge,
+                      @DefaultValue("256MB") DataSize maxSize) {
+    }
+
+    /**
+     * 游戏接口http客户端配置
+     *
+     * @param baseUrl              游戏服务器地址，sim环境下指向本地的模拟器
+     * @param version              http协议版本，HTTP_2模式下所有请求复用同一条连接
+     * @param maxConcurrentStreams HTTP/2模式下同时进行中的流的上限，不应该超过服务端的SETTINGS_MAX_CONCURRENT_STREAMS
+     * @param maxStreamRetries     流被拒绝或者连接收到GOAWAY时请求最多重新排队的次数
+     */
+    public record Http(@DefaultValue(Http.DEFAULT_BASE_URL) String baseUrl,
+                       @DefaultValue("HTTP_1_1") HttpClient.Version version,
+                       @DefaultValue("100") int maxConcurrentStreams,
+                       @DefaultValue("3") int maxStreamRetries) {
+
+        public static final String DEFAULT_BASE_URL = "https://backend.babydogepawsbot.com";
+    }
+
+    /**
+     * 游戏服务器模拟器配置，只在sim环境下生效
+     *
+     * @param port                本地监听的端口
+     * @param latency             每个请求的基础延迟
+     * @param latencyJitter       在基础延迟上随机增加的最大延迟
+     * @param unauthorizedRate    随机返回401的概率
+     * @param tooManyRequestsRate 随机返回429的概率
+     * @param serverErrorRate     随机返回5xx的概率
+     * @param tokenTtl            授权返回的x-api-key的有效期，过期后返回401
+     */
+    public record Simulator(@DefaultValue("18080") int port,
+                            @DefaultValue("50ms") Duration latency,
+                            @DefaultValue("100ms") Duration latencyJitter,
+                            @DefaultValue("0.01") double unauthorizedRate,
+                            @DefaultValue("0.01") double tooManyRequestsRate,
+                            @DefaultValue("0.01") double serverErrorRate,
+                            @DefaultValue("1h") Duration tokenTtl) {
+    }
+
+    /**
+     * 游戏接口请求日志配置，只有接口的日志级别开启时才会渲染日志，失败的请求不会被采样
+     *
+     * @param sampleRate    成功请求的日志采样率，取值[0, 1]
+     * @param maxBodyLength 日志中响应body的最大长度，超过的部分会被截断
+     * @param format        日志格式
+     * @param endpoints     单个接口的日志配置，key为接口名称，例如mine，没有配置的属性使用上面的默认值
+     */
+    public record ApiLog(@DefaultValue("1") double sampleRate,
+                         @DefaultValue("2048") int maxBodyLength,
+                         @DefaultValue("JSON") ApiLogFormat format,
+                         Map<String, ApiLogPolicy> endpoints) {
+
+        public ApiLog {
+            endpoints = endpoints == null ? Map.of() : endpoints;
+        }
+
+        /**
+         * @param policy 单个接口的日志配置，为null时全部使用默认值
+         * @return 用默认值补全后的接口日志配置
+         */
+        public ApiLogPolicy resolve(ApiLogPolicy policy) {
+            return new ApiLogPolicy(
+                    policy == null || policy.sampleRate() == null ? sampleRate : policy.sampleRate(),
+                    policy == null || policy.maxBodyLength() == null ? maxBodyLength : policy.maxBodyLength(),
+                    policy == null || policy.format() == null ? format : policy.format());
+        }
+    }
+
+    /**
+     * 单个接口的日志配置
+     *
+     * @param sampleRate    成功请求的日志采样率
+     * @param maxBodyLength 日志中响应body的最大长度
+     * @param format        日志格式
+     */
+    public record ApiLogPolicy(Double sampleRate, Integer maxBodyLength, ApiLogFormat format) {
+    }
+
+    /**
+     * 接口日志格式
+     */
+    public enum ApiLogFormat {
+
+        /**
+         * 包含请求方法、完整uri、响应码以及json格式body的完整日志
+         */
+        JSON,
+
+        /**
+         * 只包含响应码、请求方法、路径以及{@link red.zyc.babydogepaws.game.BabyDogePawsApiRequest.Request#summarize(Object)}摘要的单行日志，适合挖矿这类高频接口
+         */
+        COMPACT
+    }
 }
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2024 allurx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package red.zyc.babydogepaws.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import red.zyc.babydogepaws.jfr.FlightRecording;
+import red.zyc.babydogepaws.model.response.base.Response;
+
+import static red.zyc.babydogepaws.model.response.base.Response.ok;
+
+/**
+ * @author allurx
+ */
+@Tag(name = "Jfr", description = "BabyDogePaws Flight Recording")
+@RequestMapping("/jfr")
+@RestController
+public class JfrController {
+
+    private final FlightRecording flightRecording;
+
+    public JfrController(FlightRecording flightRecording) {
+        this.flightRecording = flightRecording;
+    }
+
+    @Operation(summary = "开始飞行记录")
+    @PostMapping("/start")
+    public Response<FlightRecording.Status> start(@RequestParam(required = false) String settings) {
+        return ok(flightRecording.start(settings));
+    }
+
+    @Operation(summary = "导出飞行记录快照，不停止记录")
+    @PostMapping("/dump")
+    public Response<FlightRecording.Status> dump() {
+        return ok(flightRecording.dump());
+    }
+
+    @Operation(summary = "停止飞行记录并导出")
+    @PostMapping("/stop")
+    public Response<FlightRecording.Status> stop() {
+        return ok(flightRecording.stop());
+    }
+
+    @Operation(summary = "获取飞行记录状态")
+    @GetMapping("/status")
+    public Response<FlightRecording.Status> status() {
+        return ok(flightRecording.status());
+    }
+}
@@ -17,17 +17,25 @@ package red.zyc.babydogepaws.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-import red.zyc.babydogepaws.dao.UserMapper;
+import red.zyc.babydogepaws.dao.BabyDogePawsUserRegistry;
+import red.zyc.babydogepaws.dao.DatabaseExecutor;
+import red.zyc.babydogepaws.dao.MiningInfoWriter;
+import red.zyc.babydogepaws.game.BabyDogePawsApiCircuitBreaker;
+import red.zyc.babydogepaws.game.BabyDogePawsApiLimiter;
+import red.zyc.babydogepaws.game.BabyDogePawsBootstrapper;
 import red.zyc.babydogepaws.game.BabyDogePawsTask;
+import red.zyc.babydogepaws.game.Http2StreamGovernor;
+import red.zyc.babydogepaws.game.TaskRegistry;
+import red.zyc.babydogepaws.game.TimingWheel;
 import red.zyc.babydogepaws.model.request.BabyDogePawsGameRequestParam;
 import red.zyc.babydogepaws.model.response.base.Response;
 import red.zyc.babydogepaws.model.response.base.ResponseMessage;
 
-import java.util.Optional;
 
 import static red.zyc.babydogepaws.common.constant.Constants.VOID;
 import static red.zyc.babydogepaws.model.response.base.Response.ok;
@@ -41,19 +49,38 @@ import static red.zyc.babydogepaws.model.response.base.ResponseMessage.ILLEGAL_M
 @RestController
 public class TaskController {
 
-    private final UserMapper userMapper;
+    private final BabyDogePawsUserRegistry babyDogePawsUserRegistry;
     private final BabyDogePawsTask babyDogePawsTask;
+    private final MiningInfoWriter miningInfoWriter;
+    private final DatabaseExecutor databaseExecutor;
+    private final BabyDogePawsApiLimiter babyDogePawsApiLimiter;
+    private final BabyDogePawsApiCircuitBreaker babyDogePawsApiCircuitBreaker;
+    private final Http2StreamGovernor http2StreamGovernor;
+    private final BabyDogePawsBootstrapper babyDogePawsBootstrapper;
+    private final TimingWheel timingWheel;
+    private final TaskRegistry taskRegistry;
 
-    public TaskController(UserMapper userMapper, BabyDogePawsTask babyDogePawsTask) {
-        this.userMapper = userMapper;
+    public TaskController(BabyDogePawsUserRegistry babyDogePawsUserRegistry, BabyDogePawsTask babyDogePawsTask, MiningInfoWriter miningInfoWriter, DatabaseExecutor databaseExecutor,
+                          BabyDogePawsApiLimiter babyDogePawsApiLimiter, BabyDogePawsApiCircuitBreaker babyDogePawsApiCircuitBreaker,
+                          Http2StreamGovernor http2StreamGovernor,
+                          BabyDogePawsBootstrapper babyDogePawsBootstrapper, TimingWheel timingWheel, TaskRegistry taskRegistry) {
+        this.babyDogePawsUserRegistry = babyDogePawsUserRegistry;
         this.babyDogePawsTask = babyDogePawsTask;
+        this.miningInfoWriter = miningInfoWriter;
+        this.databaseExecutor = databaseExecutor;
+        this.babyDogePawsApiLimiter = babyDogePawsApiLimiter;
+        this.babyDogePawsApiCircuitBreaker = babyDogePawsApiCircuitBreaker;
+        this.http2StreamGovernor = http2StreamGovernor;
+        this.babyDogePawsBootstrapper = babyDogePawsBootstrapper;
+        this.timingWheel = timingWheel;
+        this.taskRegistry = taskRegistry;
     }
 
     @Operation(summary = "启动用户所有定时任务")
     @PostMapping("/bootstrap")
     public Response<Void> bootstrap(//@Parameter(ref = PARAMETER_COMPONENT_USER_PHONE_NUMBER)
                                     String phoneNumber) {
-        return Optional.ofNullable(userMapper.getBabyDogeUser(phoneNumber))
+        return babyDogePawsUserRegistry.getBabyDogeUser(phoneNumber)
                 .map(user -> {
                     babyDogePawsTask.schedule(new BabyDogePawsGameRequestParam(user));
                     return ok(VOID);
@@ -61,15 +88,68 @@ public class TaskController {
                 .orElse(ok(ResponseMessage.MISSING_USER));
     }
 
-    @Operation(summary = "修改挖矿数量")
+    @Operation(summary = "修改单次挖矿请求的最大次数")
     @PostMapping("/updateMineCount")
-    public Response<Void> updateMineCount(@RequestParam int mineCountMin, @RequestParam int mineCountMax) {
-        if (mineCountMin >= mineCountMax) {
+    public Response<Void> updateMineCount(@RequestParam int mineCountMax) {
+        if (mineCountMax <= 0) {
             return ok(ILLEGAL_MINE_COUNT);
         } else {
-            BabyDogePawsTask.mineCountMin = mineCountMin;
             BabyDogePawsTask.mineCountMax = mineCountMax;
             return ok();
         }
     }
+
+    @Operation(summary = "获取挖矿信息写入器的统计信息")
+    @GetMapping("/miningInfoWriterStats")
+    public Response<MiningInfoWriter.Stats> miningInfoWriterStats() {
+        return ok(miningInfoWriter.stats());
+    }
+
+    @Operation(summary = "获取数据库线程池的统计信息")
+    @GetMapping("/databaseExecutorStats")
+    public Response<DatabaseExecutor.Stats> databaseExecutorStats() {
+        return ok(databaseExecutor.stats());
+    }
+
+    @Operation(summary = "获取游戏接口限流器的统计信息")
+    @GetMapping("/apiLimiterStats")
+    public Response<BabyDogePawsApiLimiter.Stats> apiLimiterStats() {
+        return ok(babyDogePawsApiLimiter.stats());
+    }
+
+    @Operation(summary = "获取HTTP/2流并发控制器的统计信息")
+    @GetMapping("/http2StreamGovernorStats")
+    public Response<Http2StreamGovernor.Stats> http2StreamGovernorStats() {
+        return ok(http2StreamGovernor.stats());
+    }
+
+    @Operation(summary = "获取游戏服务器熔断器的统计信息")
+    @GetMapping("/circuitBreakerStats")
+    public Response<BabyDogePawsApiCircuitBreaker.Stats> circuitBreakerStats() {
+        return ok(babyDogePawsApiCircuitBreaker.stats());
+    }
+
+    @Operation(summary = "获取启动预热进度")
+    @GetMapping("/bootstrapStats")
+    public Response<BabyDogePawsBootstrapper.Stats> bootstrapStats() {
+        return ok(babyDogePawsBootstrapper.stats());
+    }
+
+    @Operation(summary = "获取定时任务时间轮的统计信息，包括每个任务的调度延迟")
+    @GetMapping("/timingWheelStats")
+    public Response<TimingWheel.Stats> timingWheelStats() {
+        return ok(timingWheel.stats());
+    }
+
+    @Operation(summary = "获取所有用户的定时任务以及每种状态的任务数")
+    @GetMapping("/listTasks")
+    public Response<TaskRegistry.Snapshot> listTasks() {
+        return ok(new TaskRegistry.Snapshot(taskRegistry.stats(), taskRegistry.list()));
+    }
+
+    @Operation(summary = "获取每种状态的任务数")
+    @GetMapping("/taskStats")
+    public Response<TaskRegistry.Stats> taskStats() {
+        return ok(taskRegistry.stats());
+    }
 }
@@ -2,36 +2,41 @@ package red.zyc.babydogepaws.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-import red.zyc.babydogepaws.dao.UserMapper;
+import red.zyc.babydogepaws.dao.BabyDogePawsUserRegistry;
 import red.zyc.babydogepaws.game.BabyDogePawsApi;
+import red.zyc.babydogepaws.game.CardEconomics;
+import red.zyc.babydogepaws.game.UserState;
 import red.zyc.babydogepaws.model.request.BabyDogePawsGameRequestParam;
 import red.zyc.babydogepaws.model.request.FarmAll;
 import red.zyc.babydogepaws.model.request.FarmAllExclude;
 import red.zyc.babydogepaws.model.request.ResolveChannel;
 import red.zyc.babydogepaws.model.response.BabyDogePawsUserVo;
 import red.zyc.babydogepaws.model.response.Channel;
+import red.zyc.babydogepaws.model.response.ChannelsInfo;
 import red.zyc.babydogepaws.model.response.base.Response;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.stream.IntStream;
+import java.util.concurrent.Semaphore;
 
 import static red.zyc.babydogepaws.common.constant.Constants.VOID;
 import static red.zyc.babydogepaws.model.response.base.Response.ok;
+import static red.zyc.babydogepaws.model.response.base.ResponseMessage.FARM_PARTIALLY_FAILED;
 import static red.zyc.babydogepaws.model.response.base.ResponseMessage.ILLEGAL_FARM_AMOUNT;
 import static red.zyc.babydogepaws.model.response.base.ResponseMessage.NO_COMPLETED_TASKS_WITH_REWARDS;
 import static red.zyc.kit.json.JsonOperator.JACKSON_OPERATOR;
@@ -44,12 +49,18 @@ import static red.zyc.kit.json.JsonOperator.JACKSON_OPERATOR;
 @RestController
 public class UserController {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserController.class);
     private static final ExecutorService NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
-    private final UserMapper userMapper;
+
+    /**
+     * 刷paws时同一个用户同时进行中的采集请求数
+     */
+    private static final int FARM_CONCURRENCY = 5;
+    private final BabyDogePawsUserRegistry babyDogePawsUserRegistry;
     private final BabyDogePawsApi babyDogePawsApi;
 
-    public UserController(UserMapper userMapper, BabyDogePawsApi babyDogePawsApi) {
-        this.userMapper = userMapper;
+    public UserController(BabyDogePawsUserRegistry babyDogePawsUserRegistry, BabyDogePawsApi babyDogePawsApi) {
+        this.babyDogePawsUserRegistry = babyDogePawsUserRegistry;
         this.babyDogePawsApi = babyDogePawsApi;
     }
 
@@ -59,27 +70,51 @@ public class UserController {
         if (amount <= 0) {
             return ok(ILLEGAL_FARM_AMOUNT);
         }
-        return Optional.ofNullable(userMapper.getBabyDogeUser(phoneNumber))
+        return babyDogePawsUserRegistry.getBabyDogeUser(phoneNumber)
                 .map(BabyDogePawsGameRequestParam::new)
-                .flatMap(param -> ((List<Map<String, Object>>) babyDogePawsApi.listChannels(param).getOrDefault("channels", new ArrayList<>()))
+                .flatMap(param -> babyDogePawsApi.listChannels(param).join().map(ChannelsInfo::channels).orElse(List.of())
                         .stream()
-                        .map(channel -> new Channel(
-                                Long.parseLong(channel.get("id").toString()),
-                                Long.parseLong(channel.get("reward").toString()),
-                                (boolean) channel.get("is_resolved"),
-                                (boolean) channel.get("is_reward_taken"),
-                                (boolean) channel.get("is_premium")))
                         .filter(channel -> channel.isResolved() && channel.isRewardTaken())
                         .max(Comparator.comparing(Channel::reward))
                         .map(channel -> new ResolveChannel(param.user, channel)))
                 .map(resolveChannel -> {
                     int times = (int) Math.ceilDiv(amount, resolveChannel.channel.reward());
-                    IntStream.range(0, times).forEach(value -> NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.execute(() -> babyDogePawsApi.pickChannel(resolveChannel)));
+                    var failed = pickChannel(resolveChannel, times);
+                    if (failed > 0) {
+                        LOGGER.warn("[刷paws部分失败]-{}:{}/{}", phoneNumber, failed, times);
+                        return Response.<Void>ok(FARM_PARTIALLY_FAILED);
+                    }
                     return ok(VOID);
                 }).orElse(ok(NO_COMPLETED_TASKS_WITH_REWARDS));
 
     }
 
+    /**
+     * 重复采集同一个任务的奖励，同时进行中的请求不超过{@link #FARM_CONCURRENCY}，
+     * 避免一次性发出的请求超过限流器的等待时间而被直接拒绝
+     *
+     * @param resolveChannel {@link ResolveChannel}
+     * @param times          采集次数
+     * @return 失败的次数
+     */
+    private long pickChannel(ResolveChannel resolveChannel, int times) {
+        var inFlight = new Semaphore(FARM_CONCURRENCY);
+        var results = new ArrayList<CompletableFuture<Boolean>>(times);
+        for (int i = 0; i < times; i++) {
+            inFlight.acquireUninterruptibly();
+            results.add(babyDogePawsApi.pickChannel(resolveChannel).handle((result, throwable) -> {
+                inFlight.release();
+                if (throwable != null) {
+                    LOGGER.error("[采集任务异常]-{}", resolveChannel.user.phoneNumber, throwable);
+                    return false;
+                }
+                return result.isPresent();
+            }));
+        }
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).join();
+        return results.stream().filter(result -> !result.join()).count();
+    }
+
     @Operation(summary = "给所有余额小于amount的用户刷到该目标数量的paws")
     @PostMapping("/farmAllToTarget")
     public Response<Void> farmAllToTarget(@RequestParam long amount) {
@@ -89,12 +124,15 @@ public class UserController {
         if (amount <= 0) {
             return ok(ILLEGAL_FARM_AMOUNT);
         }
-        NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.execute(() -> userMapper.listBabyDogeUsers()
+        NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.execute(() -> babyDogePawsUserRegistry.listBabyDogeUsers()
                 .stream()
                 .parallel()
                 .map(user -> {
-                    var me = babyDogePawsApi.getMe(new BabyDogePawsGameRequestParam(user));
-                    var balance = Long.parseLong(me.getOrDefault("balance", BigDecimal.ZERO).toString());
+                    var balance = babyDogePawsApi.getState(new BabyDogePawsGameRequestParam(user))
+                            .join()
+                            .map(UserState::balance)
+                            .orElse(BigDecimal.ZERO)
+                            .longValue();
                     return new Temp(balance, user.phoneNumber);
                 })
                 .filter(temp -> temp.balance < amount)
@@ -118,7 +156,7 @@ public class UserController {
         if (farmAllExclude.amount <= 0) {
             return ok(ILLEGAL_FARM_AMOUNT);
         }
-        userMapper.listBabyDogeUsers()
+        babyDogePawsUserRegistry.listBabyDogeUsers()
                 .stream()
                 .filter(user -> !farmAllExclude.excludedPhoneNumbers.contains(user.phoneNumber))
                 .forEach(user -> NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.execute(() -> farm(user.phoneNumber, farmAllExclude.amount)));
@@ -129,7 +167,7 @@ public class UserController {
     @GetMapping("/getUser")
     public Response<BabyDogePawsUserVo> getUser(//@Parameter(ref = PARAMETER_COMPONENT_USER_PHONE_NUMBER)
                                                 @RequestParam String phoneNumber) {
-        return ok(Optional.ofNullable(userMapper.getBabyDogeUser(phoneNumber))
+        return ok(babyDogePawsUserRegistry.getBabyDogeUser(phoneNumber)
                 .map(user -> JACKSON_OPERATOR.<BabyDogePawsUserVo>copyProperties(user, BabyDogePawsUserVo.class))
                 .orElse(null));
     }
@@ -138,9 +176,9 @@ public class UserController {
     @GetMapping("/listFriends")
     public Response<Map<String, Object>> listFriends(//@Parameter(ref = PARAMETER_COMPONENT_USER_PHONE_NUMBER)
                                                      String phoneNumber) {
-        return ok(Optional.ofNullable(userMapper.getBabyDogeUser(phoneNumber))
+        return ok(babyDogePawsUserRegistry.getBabyDogeUser(phoneNumber)
                 .map(BabyDogePawsGameRequestParam::new)
-                .map(babyDogePawsApi::listFriends)
+                .map(param -> babyDogePawsApi.listFriends(param).join())
                 .orElse(new HashMap<>()));
     }
 
@@ -148,21 +186,18 @@ public class UserController {
     @GetMapping("/listCardUpgradeInfo")
     public Response<List<Map<String, String>>> listCardUpgradeInfo(//@Parameter(ref = PARAMETER_COMPONENT_USER_PHONE_NUMBER)
                                                                    String phoneNumber) {
-        return ok(Optional.ofNullable(userMapper.getBabyDogeUser(phoneNumber))
+        return ok(babyDogePawsUserRegistry.getBabyDogeUser(phoneNumber)
                 .map(BabyDogePawsGameRequestParam::new)
-                .map(babyDogePawsApi::listCards)
-                .map(cards -> cards.stream()
-                        .flatMap(o -> ((List<Map<String, Object>>) o.get("cards")).stream().peek(card -> card.put("categoryName", o.get("name"))))
-                        .filter(o -> (Boolean) o.get("is_available"))
-                        .sorted(Comparator.<Map<String, Object>, BigDecimal>comparing((card) -> (new BigDecimal(card.get("upgrade_cost").toString())).divide(new BigDecimal(card.get("farming_upgrade").toString()), 0, RoundingMode.HALF_UP))
-                                .thenComparing((card) -> new BigDecimal(card.get("upgrade_cost").toString())))
-                        .map(card -> {
-                            String price = String.valueOf((new BigDecimal(card.get("upgrade_cost").toString())).divide(new BigDecimal(card.get("farming_upgrade").toString()), 2, RoundingMode.HALF_UP));
-                            String name = String.valueOf(card.get("name"));
-                            String categoryName = String.valueOf(card.get("categoryName"));
-                            String upgradeCost = String.valueOf(card.get("upgrade_cost"));
-                            String farmingUpgrade = String.valueOf(card.get("farming_upgrade"));
-                            String curTotalFarming = String.valueOf(card.get("cur_total_farming"));
+                .flatMap(param -> babyDogePawsApi.listCards(param).join())
+                .map(snapshot -> CardEconomics.rank(snapshot.cards()).stream()
+                        .map(economics -> {
+                            var card = economics.card();
+                            String price = String.valueOf(economics.priceDecimal());
+                            String name = String.valueOf(card.name());
+                            String categoryName = String.valueOf(economics.categoryName());
+                            String upgradeCost = String.valueOf(card.cost());
+                            String farmingUpgrade = String.valueOf(card.profit());
+                            String curTotalFarming = String.valueOf(card.curTotalFarming());
                             return Map.of(
                                     "categoryName", categoryName,
                                     "price", price,
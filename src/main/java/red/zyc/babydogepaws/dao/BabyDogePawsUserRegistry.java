@@ -0,0 +1,230 @@
+/*
+ * Copyright 2024 allurx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package red.zyc.babydogepaws.dao;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import red.zyc.babydogepaws.config.BabyDogePawsProperties;
+import red.zyc.babydogepaws.model.persistent.BabyDogePawsUser;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 内存中的用户注册表，按照id以及手机号索引<br>
+ * 第一次访问时全量加载一次，之后由单独的线程按照修改时间水位线增量刷新，本地修改用户数据后会立即重新加载该用户。
+ * 刷新的数据会合并到已有的实例中，所以定时任务和接口拿到的始终是同一个实例，x-api-key、状态快照等运行时状态不会丢失
+ *
+ * @author allurx
+ */
+@Component
+public class BabyDogePawsUserRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BabyDogePawsUserRegistry.class);
+
+    /**
+     * 全量加载时使用的水位线
+     */
+    private static final LocalDateTime INITIAL_WATERMARK = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final UserMapper userMapper;
+    private final TelegramUserMapper telegramUserMapper;
+    private final UserConfigMapper userConfigMapper;
+    private final DatabaseExecutor databaseExecutor;
+    private final BabyDogePawsProperties.UserRegistry config;
+    private final ConcurrentHashMap<Integer, BabyDogePawsUser> usersById = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, BabyDogePawsUser> usersByPhoneNumber = new ConcurrentHashMap<>();
+    private final Thread refresher;
+    private volatile boolean running = true;
+    private volatile boolean loaded = false;
+
+    /**
+     * 保证刷新以及重新加载串行执行，不能使用synchronized，参考{@link DatabaseExecutor}
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * 已加载的用户数据中最新的修改时间，下一次刷新只查询修改时间不早于它的用户
+     */
+    private LocalDateTime watermark = INITIAL_WATERMARK;
+
+    public BabyDogePawsUserRegistry(UserMapper userMapper,
+                                    TelegramUserMapper telegramUserMapper,
+                                    UserConfigMapper userConfigMapper,
+                                    DatabaseExecutor databaseExecutor,
+                                    BabyDogePawsProperties babyDogePawsProperties) {
+        this.userMapper = userMapper;
+        this.telegramUserMapper = telegramUserMapper;
+        this.userConfigMapper = userConfigMapper;
+        this.databaseExecutor = databaseExecutor;
+        this.config = babyDogePawsProperties.userRegistry();
+        this.refresher = Thread.ofVirtual().name("BabyDogePawsUserRegistry").start(this::run);
+    }
+
+    /**
+     * @param phoneNumber 手机号
+     * @return 没有被ban的用户
+     */
+    public Optional<BabyDogePawsUser> getBabyDogeUser(String phoneNumber) {
+        ensureLoaded();
+        return Optional.ofNullable(phoneNumber).map(usersByPhoneNumber::get).filter(BabyDogePawsUserRegistry::active);
+    }
+
+    /**
+     * @param id 用户id
+     * @return 没有被ban的用户
+     */
+    public Optional<BabyDogePawsUser> getBabyDogeUser(Integer id) {
+        ensureLoaded();
+        return Optional.ofNullable(id).map(usersById::get).filter(BabyDogePawsUserRegistry::active);
+    }
+
+    /**
+     * @return 所有没有被ban的用户，按照id升序排列
+     */
+    public List<BabyDogePawsUser> listBabyDogeUsers() {
+        ensureLoaded();
+        return usersById.values().stream().filter(BabyDogePawsUserRegistry::active).sorted(Comparator.comparing(user -> user.id)).toList();
+    }
+
+    /**
+     * @return 所有被ban的用户，按照id升序排列
+     */
+    public List<BabyDogePawsUser> listBannedBabyDogeUsers() {
+        ensureLoaded();
+        return usersById.values().stream().filter(user -> !active(user)).sorted(Comparator.comparing(user -> user.id)).toList();
+    }
+
+    /**
+     * 修改telegram账号的ban状态，并立即重新加载该用户
+     *
+     * @param id     用户id
+     * @param banned 是否被ban
+     */
+    public void updateTelegramUserBanned(Integer id, int banned) {
+        databaseExecutor.call(() -> telegramUserMapper.updateTelegramUserBanned(id, banned));
+        invalidate(id);
+    }
+
+    /**
+     * 修改用户的User-Agent，并立即重新加载该用户
+     *
+     * @param userId    用户id
+     * @param userAgent User-Agent
+     */
+    public void updateUserAgent(Integer userId, String userAgent) {
+        databaseExecutor.call(() -> userConfigMapper.updateUserAgent(userId, userAgent));
+        invalidate(userId);
+    }
+
+    /**
+     * 本地修改了用户数据后重新加载该用户，不用等待下一次增量刷新
+     *
+     * @param id 用户id
+     */
+    public void invalidate(Integer id) {
+        lock.lock();
+        try {
+            Optional.ofNullable(databaseExecutor.call(() -> userMapper.getBabyDogeUserById(id))).ifPresent(this::put);
+        } catch (Throwable t) {
+            LOGGER.error("[重新加载用户失败]-{}", id, t);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 增量刷新修改时间不早于水位线的用户，水位线所在的那一秒修改的用户会被重复加载，合并是幂等的
+     */
+    public void refresh() {
+        lock.lock();
+        try {
+            var users = databaseExecutor.call(() -> userMapper.listModifiedBabyDogeUsers(watermark));
+            users.forEach(this::put);
+            users.stream()
+                    .map(user -> user.modifiedTime)
+                    .filter(Objects::nonNull)
+                    .max(Comparator.naturalOrder())
+                    .filter(modifiedTime -> modifiedTime.isAfter(watermark))
+                    .ifPresent(modifiedTime -> watermark = modifiedTime);
+            if (!loaded) {
+                loaded = true;
+                LOGGER.info("[用户注册表加载完成]-{}:{}", users.size(), watermark);
+            } else {
+                LOGGER.debug("[用户注册表增量刷新]-{}:{}", users.size(), watermark);
+            }
+        } catch (Throwable t) {
+            LOGGER.error("[刷新用户注册表失败]-{}", watermark, t);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 应用关闭时停止刷新线程
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(refresher);
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            lock.lock();
+            try {
+                if (!loaded) refresh();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void run() {
+        while (running) {
+            LockSupport.parkNanos(config.refreshInterval().toNanos());
+            if (running && loaded) {
+                refresh();
+            }
+        }
+    }
+
+    private void put(BabyDogePawsUser refreshed) {
+        var user = usersById.computeIfAbsent(refreshed.id, id -> refreshed);
+        if (user != refreshed) {
+            var phoneNumber = user.phoneNumber;
+            user.merge(refreshed);
+            if (phoneNumber != null && !phoneNumber.equals(user.phoneNumber)) {
+                usersByPhoneNumber.remove(phoneNumber, user);
+            }
+        }
+        if (user.phoneNumber != null) {
+            usersByPhoneNumber.put(user.phoneNumber, user);
+        }
+    }
+
+    private static boolean active(BabyDogePawsUser user) {
+        return Objects.equals(user.banned, 0);
+    }
+}
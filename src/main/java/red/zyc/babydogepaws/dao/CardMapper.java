@@ -2,27 +2,36 @@ package red.zyc.babydogepaws.dao;
 
 import org.apache.ibatis.annotations.Insert;
 import red.zyc.babydogepaws.model.persistent.Card;
-import red.zyc.babydogepaws.model.request.UpgradeCard;
+
+import java.util.List;
 
 /**
  * @author allurx
  */
 public interface CardMapper {
 
+    /**
+     * 批量保存或更新卡片，{@link Card#upgradeInfo}为{@code {"等级": {"cost": x, "profit": y}}}格式的json，
+     * 卡片已存在时通过JSON_MERGE_PATCH合并到原有的升级信息中，效果等同于对该等级执行JSON_SET
+     *
+     * @param cards 卡片列表
+     * @return 影响的行数
+     */
     @Insert("""
+            <script>
             INSERT INTO card (card_id, card_name, category_id, category_name, requirement, upgrade_info)
-            VALUES (#{card.cardId}, #{card.cardName}, #{card.categoryId}, #{card.categoryName}, #{card.requirement},CAST(#{upgradeInfo.insertJson} AS JSON)) 
+            VALUES
+            <foreach collection="cards" item="o" separator=",">
+                (#{o.cardId}, #{o.cardName}, #{o.categoryId}, #{o.categoryName}, CAST(#{o.requirement} AS JSON), CAST(#{o.upgradeInfo} AS JSON))
+            </foreach>
                 ON DUPLICATE KEY
                     UPDATE
-                        card_name = #{card.cardName},
-                        category_id=#{card.categoryId},
-                        category_name=#{card.categoryName},
-                        requirement=CAST(#{card.requirement} AS JSON),
-                        upgrade_info=JSON_SET(
-                            upgrade_info,
-                            #{upgradeInfo.levelPath},
-                            CAST(#{upgradeInfo.updateJson} AS JSON)
-                        );
+                        card_name = VALUES(card_name),
+                        category_id = VALUES(category_id),
+                        category_name = VALUES(category_name),
+                        requirement = VALUES(requirement),
+                        upgrade_info = JSON_MERGE_PATCH(upgrade_info, VALUES(upgrade_info))
+            </script>
             """)
-    int saveOrUpdateCard(Card card, UpgradeCard.UpgradeInfo upgradeInfo);
+    int saveOrUpdateCards(List<Card> cards);
 }
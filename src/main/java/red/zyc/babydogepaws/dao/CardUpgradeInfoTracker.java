@@ -0,0 +1,117 @@
+/*
+ * Copyright 2024 allurx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package red.zyc.babydogepaws.dao;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import red.zyc.babydogepaws.config.BabyDogePawsProperties;
+import red.zyc.babydogepaws.model.persistent.BabyDogePawsUser;
+import red.zyc.babydogepaws.model.persistent.Card;
+import red.zyc.babydogepaws.model.request.UpgradeCard;
+import red.zyc.babydogepaws.model.response.CardsSnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 卡片升级信息追踪器<br>
+ * 只有{@link BabyDogePawsProperties#cardUpgradeInfoTracker()}中的用户才会持久化卡片升级信息，
+ * 内存中按照卡片id和等级记录最近一次持久化的升级条件，升级信息是按照等级合并到卡片中的，
+ * 所以多个用户的同一张卡片处于不同等级时不会互相覆盖，只有没有持久化过的等级或者升级条件发生变化的卡片才会构造json并通过一条批量upsert写入数据库
+ *
+ * @author allurx
+ */
+@Component
+public class CardUpgradeInfoTracker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CardUpgradeInfoTracker.class);
+
+    private final CardMapper cardMapper;
+    private final DatabaseExecutor databaseExecutor;
+    private final BabyDogePawsProperties babyDogePawsProperties;
+
+    /**
+     * 卡片id以及等级 -> 最近一次持久化的指纹
+     */
+    private final ConcurrentHashMap<CardLevel, Fingerprint> persisted = new ConcurrentHashMap<>();
+
+    public CardUpgradeInfoTracker(CardMapper cardMapper, DatabaseExecutor databaseExecutor, BabyDogePawsProperties babyDogePawsProperties) {
+        this.cardMapper = cardMapper;
+        this.databaseExecutor = databaseExecutor;
+        this.babyDogePawsProperties = babyDogePawsProperties;
+    }
+
+    /**
+     * @param user {@link BabyDogePawsUser}
+     * @return 是否需要追踪该用户的卡片升级信息
+     */
+    public boolean isTracked(BabyDogePawsUser user) {
+        return babyDogePawsProperties.cardUpgradeInfoTracker().contains(user.phoneNumber);
+    }
+
+    /**
+     * 异步持久化发生变化的卡片，升级卡片的线程不用等待数据库写入
+     *
+     * @param categories 卡片分类列表
+     */
+    public void track(List<CardsSnapshot.CardCategory> categories) {
+        var changed = new ArrayList<Card>();
+        var fingerprints = new ArrayList<Fingerprint>();
+        categories.forEach(category -> category.cards().forEach(cardInfo -> {
+            var fingerprint = new Fingerprint(new CardLevel(cardInfo.id(), cardInfo.level()), cardInfo.requirementJson());
+            if (!fingerprint.equals(persisted.get(fingerprint.cardLevel()))) {
+                changed.add(toCard(category.name(), cardInfo));
+                fingerprints.add(fingerprint);
+            }
+        }));
+        if (changed.isEmpty()) {
+            return;
+        }
+        databaseExecutor.submit(() -> cardMapper.saveOrUpdateCards(changed)).whenComplete((rows, t) -> {
+            if (t == null) {
+                fingerprints.forEach(fingerprint -> persisted.put(fingerprint.cardLevel(), fingerprint));
+            } else {
+                LOGGER.error("[批量保存卡片升级信息失败]-{}", changed.size(), t);
+            }
+        });
+    }
+
+    private static Card toCard(String categoryName, CardsSnapshot.CardInfo cardInfo) {
+        var card = Card.of(categoryName, cardInfo);
+        var upgradeInfo = UpgradeCard.UpgradeInfo.of(cardInfo);
+        upgradeInfo.buildJsonFunctionParam();
+        card.upgradeInfo = upgradeInfo.insertJson;
+        return card;
+    }
+
+    /**
+     * @param cardId 卡片id
+     * @param level  等级
+     */
+    private record CardLevel(Integer cardId, String level) {
+    }
+
+    /**
+     * 卡片指纹
+     *
+     * @param cardLevel   卡片id以及等级
+     * @param requirement 升级条件
+     */
+    private record Fingerprint(CardLevel cardLevel, String requirement) {
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2024 allurx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package red.zyc.babydogepaws.dao;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import red.zyc.babydogepaws.config.BabyDogePawsProperties;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 数据库访问专用的有界线程池<br>
+ * JDK21中虚拟线程在synchronized代码块中阻塞时会钉住（pin）承载线程，而MySQL驱动在发送请求以及读取响应时都持有监视器锁，
+ * 所以Miner、CardUpGrader以及http执行器等虚拟线程直接访问数据库时，并发度会被限制在承载线程数以内，其它虚拟线程也无法被调度。
+ * 这里把所有mapper调用交给固定数量的平台线程执行，虚拟线程只需等待{@link CompletableFuture}，等待时会正常卸载承载线程。<br>
+ * 线程数不应该超过连接池的最大连接数，队列满了之后提交方会被阻塞直到队列有空位<br>
+ * 同样的原因，虚拟线程持有锁期间需要访问数据库或者执行文件I/O时，只能使用{@link java.util.concurrent.locks.ReentrantLock}而不能使用synchronized
+ *
+ * @author allurx
+ */
+@Component
+public class DatabaseExecutor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DatabaseExecutor.class);
+
+    private final BabyDogePawsProperties.DatabaseExecutor config;
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder blockedSubmits = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public DatabaseExecutor(BabyDogePawsProperties babyDogePawsProperties) {
+        this.config = babyDogePawsProperties.databaseExecutor();
+        this.executor = new ThreadPoolExecutor(
+                config.threads(),
+                config.threads(),
+                0,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(config.queueCapacity()),
+                Thread.ofPlatform().name("DatabaseExecutor-", 0).daemon().factory(),
+                (runnable, executor) -> {
+
+                    // 队列满了之后阻塞提交方，提交方是虚拟线程时阻塞只会卸载承载线程
+                    if (executor.isShutdown()) {
+                        throw new RejectedExecutionException("数据库线程池已关闭");
+                    }
+                    blockedSubmits.increment();
+                    try {
+                        executor.getQueue().put(runnable);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException(e);
+                    }
+
+                    // 等待期间线程池关闭的话，工作线程可能已经处理完队列并退出了，放入队列的任务永远不会被执行
+                    if (executor.isShutdown() && executor.remove(runnable)) {
+                        throw new RejectedExecutionException("数据库线程池已关闭");
+                    }
+                });
+        this.executor.prestartAllCoreThreads();
+    }
+
+    /**
+     * 异步执行数据库操作
+     *
+     * @param callable 数据库操作
+     * @param <T>      返回值类型
+     * @return 数据库操作的结果
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> callable) {
+        var future = new CompletableFuture<T>();
+        var submittedAt = System.nanoTime();
+        submitted.increment();
+        executor.execute(() -> {
+            var wait = System.nanoTime() - submittedAt;
+            totalWaitNanos.add(wait);
+            maxWaitNanos.accumulateAndGet(wait, Math::max);
+            try {
+                future.complete(callable.call());
+            } catch (Throwable t) {
+                failed.increment();
+                future.completeExceptionally(t);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 同步执行数据库操作，调用方线程只会等待结果而不会执行数据库操作。
+     * 在数据库线程中调用时直接执行，避免线程池中的线程互相等待
+     *
+     * @param callable 数据库操作
+     * @param <T>      返回值类型
+     * @return 数据库操作的结果
+     */
+    public <T> T call(Callable<T> callable) {
+        try {
+            return isDatabaseThread() ? callable.call() : submit(callable).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * @return 当前线程池的统计信息
+     */
+    public Stats stats() {
+        var count = submitted.sum();
+        return new Stats(
+                config.threads(),
+                executor.getActiveCount(),
+                executor.getQueue().size(),
+                config.queueCapacity(),
+                count,
+                executor.getCompletedTaskCount(),
+                failed.sum(),
+                blockedSubmits.sum(),
+                TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()),
+                count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.sum() / count));
+    }
+
+    /**
+     * 应用关闭时等待已提交的数据库操作执行完
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            LOGGER.warn("[数据库线程池关闭超时]-{}", stats());
+        }
+    }
+
+    private static boolean isDatabaseThread() {
+        return Thread.currentThread().getName().startsWith("DatabaseExecutor-");
+    }
+
+    /**
+     * 数据库线程池统计信息
+     *
+     * @param threads           线程数
+     * @param active            正在执行数据库操作的线程数
+     * @param queueDepth        队列中等待执行的数据库操作数
+     * @param queueCapacity     队列容量
+     * @param submitted         提交的数据库操作数
+     * @param completed         执行完的数据库操作数
+     * @param failed            执行失败的数据库操作数
+     * @param blockedSubmits    队列满了导致提交方被阻塞的次数
+     * @param maxWaitMillis     数据库操作在队列中等待的最长时间
+     * @param averageWaitMillis 数据库操作在队列中等待的平均时间
+     */
+    public record Stats(int threads,
+                        int active,
+                        int queueDepth,
+                        int queueCapacity,
+                        long submitted,
+                        long completed,
+                        long failed,
+                        long blockedSubmits,
+                        long maxWaitMillis,
+                        long averageWaitMillis) {
+    }
+}
@@ -16,6 +16,9 @@
 package red.zyc.babydogepaws.dao;
 
 import org.apache.ibatis.annotations.Insert;
+import red.zyc.babydogepaws.model.persistent.MiningInfo;
+
+import java.util.List;
 
 /**
  * @author allurx
@@ -27,4 +30,15 @@ public interface MiningInfoMapper {
             VALUES (#{userId},#{earnPerTap},#{count},#{mined},#{remainingEnergy},#{draw})
                         """)
     int saveMiningInfo(Integer userId, int earnPerTap, int count, int mined, int remainingEnergy, String draw);
+
+    @Insert("""
+            <script>
+            INSERT INTO mining_info (user_id, earn_per_tap, count, mined,remaining_energy,draw )
+            VALUES
+            <foreach collection="miningInfos" item="o" separator=",">
+                (#{o.userId},#{o.earnPerTap},#{o.count},#{o.mined},#{o.remainingEnergy},#{o.draw})
+            </foreach>
+            </script>
+            """)
+    int saveMiningInfos(List<MiningInfo> miningInfos);
 }
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2024 allurx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package red.zyc.babydogepaws.dao;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import red.zyc.babydogepaws.config.BabyDogePawsProperties;
+import red.zyc.babydogepaws.model.persistent.MiningInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 挖矿信息异步批量写入器（write-behind）<br>
+ * 挖矿线程只需将挖矿信息放入有界缓冲区，由单独的线程按照批量大小或者时间间隔合并成一条多行insert写入数据库，
+ * 缓冲区满了之后写入方会被阻塞，阻塞超时后直接同步写入数据库，应用关闭时会将缓冲区中剩余的数据全部写入数据库
+ *
+ * @author allurx
+ */
+@Component
+public class MiningInfoWriter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MiningInfoWriter.class);
+
+    private final MiningInfoMapper miningInfoMapper;
+    private final DatabaseExecutor databaseExecutor;
+    private final BabyDogePawsProperties.MiningInfoWriter config;
+    private final ArrayBlockingQueue<MiningInfo> queue;
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    private final LongAdder flushedRows = new LongAdder();
+    private final LongAdder flushCount = new LongAdder();
+    private final LongAdder failedRows = new LongAdder();
+    private final LongAdder blockedOffers = new LongAdder();
+    private final LongAdder totalFlushNanos = new LongAdder();
+    private final AtomicLong lastFlushNanos = new AtomicLong();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+
+    public MiningInfoWriter(MiningInfoMapper miningInfoMapper, DatabaseExecutor databaseExecutor, BabyDogePawsProperties babyDogePawsProperties) {
+        this.miningInfoMapper = miningInfoMapper;
+        this.databaseExecutor = databaseExecutor;
+        this.config = babyDogePawsProperties.miningInfoWriter();
+        this.queue = new ArrayBlockingQueue<>(config.capacity());
+        this.flusher = Thread.ofVirtual().name("MiningInfoWriter").start(this::run);
+    }
+
+    /**
+     * 写入挖矿信息，缓冲区满了之后最多阻塞{@link BabyDogePawsProperties.MiningInfoWriter#offerTimeout()}，
+     * 超时或者应用正在关闭时直接同步写入数据库
+     *
+     * @param miningInfo {@link MiningInfo}
+     */
+    public void write(MiningInfo miningInfo) {
+        try {
+            if (running && queue.offer(miningInfo, config.offerTimeout().toNanos(), TimeUnit.NANOSECONDS)) {
+
+                // 入队期间应用开始关闭的话，写入线程可能已经看到空的缓冲区并退出了，由调用方同步写入剩余的数据
+                if (!running) {
+                    flushRemaining();
+                }
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        blockedOffers.increment();
+        flush(List.of(miningInfo));
+    }
+
+    /**
+     * @return 当前写入器的统计信息
+     */
+    public Stats stats() {
+        long count = flushCount.sum();
+        return new Stats(
+                queue.size(),
+                config.capacity(),
+                flushedRows.sum(),
+                failedRows.sum(),
+                blockedOffers.sum(),
+                count,
+                TimeUnit.NANOSECONDS.toMillis(lastFlushNanos.get()),
+                TimeUnit.NANOSECONDS.toMillis(maxFlushNanos.get()),
+                count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalFlushNanos.sum() / count));
+    }
+
+    /**
+     * 应用关闭时停止接收新的数据，并将缓冲区中剩余的数据全部写入数据库
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+
+        // 这里不能中断写入线程，虚拟线程阻塞在socket上时被中断会导致数据库连接被关闭
+        flusher.join(config.flushInterval().plusSeconds(30).toMillis());
+        LOGGER.info("[挖矿信息写入器已关闭]-{}", stats());
+    }
+
+    private void flushRemaining() {
+        var remaining = new ArrayList<MiningInfo>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            flush(remaining);
+        }
+    }
+
+    private void run() {
+        var batch = new ArrayList<MiningInfo>(config.batchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+
+                // 攒够一批或者等待时间超过flushInterval就写入数据库
+                var deadline = System.nanoTime() + config.flushInterval().toNanos();
+                while (running && batch.size() < config.batchSize()) {
+                    var remaining = deadline - System.nanoTime();
+                    var miningInfo = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (miningInfo == null) break;
+                    batch.add(miningInfo);
+                    queue.drainTo(batch, config.batchSize() - batch.size());
+                }
+            } catch (InterruptedException e) {
+                LOGGER.warn("[挖矿信息写入线程被中断]");
+            }
+            if (!running) {
+                queue.drainTo(batch, config.batchSize() - batch.size());
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<MiningInfo> miningInfos) {
+        var start = System.nanoTime();
+        try {
+            databaseExecutor.call(() -> miningInfoMapper.saveMiningInfos(miningInfos));
+            flushedRows.add(miningInfos.size());
+        } catch (Throwable t) {
+            failedRows.add(miningInfos.size());
+            LOGGER.error("[批量保存挖矿信息失败]-{}", miningInfos.size(), t);
+        } finally {
+            var elapsed = System.nanoTime() - start;
+            flushCount.increment();
+            totalFlushNanos.add(elapsed);
+            lastFlushNanos.set(elapsed);
+            maxFlushNanos.accumulateAndGet(elapsed, Math::max);
+        }
+    }
+
+    /**
+     * 写入器统计信息
+     *
+     * @param queueDepth         缓冲区中等待写入的数据量
+     * @param capacity           缓冲区容量
+     * @param flushedRows        已写入数据库的行数
+     * @param failedRows         写入数据库失败的行数
+     * @param blockedOffers      缓冲区满了或者应用关闭时被迫同步写入的次数
+     * @param flushCount         写入数据库的次数
+     * @param lastFlushMillis    最近一次写入数据库耗时
+     * @param maxFlushMillis     写入数据库最大耗时
+     * @param averageFlushMillis 写入数据库平均耗时
+     */
+    public record Stats(int queueDepth,
+                        int capacity,
+                        long flushedRows,
+                        long failedRows,
+                        long blockedOffers,
+                        long flushCount,
+                        long lastFlushMillis,
+                        long maxFlushMillis,
+                        long averageFlushMillis) {
+    }
+}
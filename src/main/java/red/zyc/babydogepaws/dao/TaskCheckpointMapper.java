@@ -0,0 +1,47 @@
+/*
+ * Copyright 2024 allurx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package red.zyc.babydogepaws.dao;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Select;
+import red.zyc.babydogepaws.model.persistent.TaskCheckpoint;
+
+import java.util.List;
+
+/**
+ * @author allurx
+ */
+public interface TaskCheckpointMapper {
+
+    @Select("""
+            select * from task_checkpoint
+            """)
+    List<TaskCheckpoint> listTaskCheckpoints();
+
+    @Insert("""
+            <script>
+            INSERT INTO task_checkpoint (user_id, task, next_due_time, last_outcome)
+            VALUES
+            <foreach collection="taskCheckpoints" item="o" separator=",">
+                (#{o.userId},#{o.task},#{o.nextDueTime},#{o.lastOutcome})
+            </foreach>
+            ON DUPLICATE KEY UPDATE
+                next_due_time = VALUES(next_due_time),
+                last_outcome = VALUES(last_outcome)
+            </script>
+            """)
+    int saveOrUpdateTaskCheckpoints(List<TaskCheckpoint> taskCheckpoints);
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2024 allurx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package red.zyc.babydogepaws.dao;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import red.zyc.babydogepaws.config.BabyDogePawsProperties;
+import red.zyc.babydogepaws.model.persistent.TaskCheckpoint;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 定时任务检查点存储<br>
+ * 第一次访问时从数据库加载所有检查点，任务每次执行后只更新内存中的检查点并标记为脏数据，
+ * 由单独的线程定期将脏数据合并成一条批量upsert写入数据库，应用关闭时会写入剩余的脏数据。
+ * 加载失败时所有任务都按照没有检查点处理，直到{@link BabyDogePawsProperties.TaskCheckpointStore#loadRetryInterval() 重试间隔}过后才会再次加载
+ *
+ * @author allurx
+ */
+@Component
+public class TaskCheckpointStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TaskCheckpointStore.class);
+
+    private final TaskCheckpointMapper taskCheckpointMapper;
+    private final DatabaseExecutor databaseExecutor;
+    private final BabyDogePawsProperties.TaskCheckpointStore config;
+    private final ConcurrentHashMap<Key, TaskCheckpoint> checkpoints = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Key, TaskCheckpoint> dirty = new ConcurrentHashMap<>();
+    private final Thread flusher;
+    private volatile boolean running = true;
+    private volatile boolean loaded = false;
+
+    /**
+     * 下一次允许从数据库加载检查点的时间
+     */
+    private volatile long nextLoadNanos = System.nanoTime();
+
+    /**
+     * 加载期间会访问数据库，不能使用synchronized，参考{@link DatabaseExecutor}
+     */
+    private final ReentrantLock loadLock = new ReentrantLock();
+
+    public TaskCheckpointStore(TaskCheckpointMapper taskCheckpointMapper, DatabaseExecutor databaseExecutor, BabyDogePawsProperties babyDogePawsProperties) {
+        this.taskCheckpointMapper = taskCheckpointMapper;
+        this.databaseExecutor = databaseExecutor;
+        this.config = babyDogePawsProperties.taskCheckpointStore();
+        this.flusher = Thread.ofVirtual().name("TaskCheckpointStore").start(this::run);
+    }
+
+    /**
+     * @param userId 用户id
+     * @param task   任务名称
+     * @return 任务的检查点
+     */
+    public Optional<TaskCheckpoint> get(Integer userId, String task) {
+        ensureLoaded();
+        return Optional.ofNullable(checkpoints.get(new Key(userId, task)));
+    }
+
+    /**
+     * 记录任务的检查点
+     *
+     * @param userId      用户id
+     * @param task        任务名称
+     * @param nextDueTime 任务下一次执行的时间
+     * @param lastOutcome 任务最近一次执行的结果
+     */
+    public void checkpoint(Integer userId, String task, LocalDateTime nextDueTime, TaskCheckpoint.Outcome lastOutcome) {
+        var key = new Key(userId, task);
+        var checkpoint = new TaskCheckpoint(userId, task, nextDueTime, lastOutcome);
+        checkpoints.put(key, checkpoint);
+        dirty.put(key, checkpoint);
+    }
+
+    /**
+     * 应用关闭时停止刷新线程，并将剩余的脏数据写入数据库
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(flusher);
+        flusher.join(config.flushInterval().plusSeconds(30).toMillis());
+    }
+
+    private void ensureLoaded() {
+        if (!loaded && System.nanoTime() - nextLoadNanos >= 0) {
+            loadLock.lock();
+            try {
+                if (!loaded && System.nanoTime() - nextLoadNanos >= 0) {
+                    databaseExecutor.call(taskCheckpointMapper::listTaskCheckpoints).forEach(checkpoint -> checkpoints.putIfAbsent(new Key(checkpoint.userId, checkpoint.task), checkpoint));
+                    loaded = true;
+                    LOGGER.info("[任务检查点加载完成]-{}", checkpoints.size());
+                }
+            } catch (Throwable t) {
+                nextLoadNanos = System.nanoTime() + config.loadRetryInterval().toNanos();
+                LOGGER.error("[加载任务检查点失败，稍后重试]-{}", config.loadRetryInterval(), t);
+            } finally {
+                loadLock.unlock();
+            }
+        }
+    }
+
+    private void run() {
+        while (running) {
+            LockSupport.parkNanos(config.flushInterval().toNanos());
+            flush();
+        }
+        flush();
+    }
+
+    private void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        var batch = new ArrayList<TaskCheckpoint>();
+        dirty.forEach((key, checkpoint) -> {
+            if (dirty.remove(key, checkpoint)) {
+                batch.add(checkpoint);
+            }
+        });
+        try {
+            databaseExecutor.call(() -> taskCheckpointMapper.saveOrUpdateTaskCheckpoints(batch));
+        } catch (Throwable t) {
+            LOGGER.error("[批量保存任务检查点失败]-{}", batch.size(), t);
+
+            // 写入失败的检查点下一次再写，期间被更新过的以新的为准
+            batch.forEach(checkpoint -> dirty.putIfAbsent(new Key(checkpoint.userId, checkpoint.task), checkpoint));
+        }
+    }
+
+    /**
+     * @param userId 用户id
+     * @param task   任务名称
+     */
+    private record Key(Integer userId, String task) {
+    }
+}
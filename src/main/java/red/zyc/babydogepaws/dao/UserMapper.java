@@ -4,6 +4,7 @@ import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Select;
 import red.zyc.babydogepaws.model.persistent.BabyDogePawsUser;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -94,6 +95,71 @@ public interface UserMapper {
             """)
     BabyDogePawsUser getBabyDogeUser(String phoneNumber);
 
+    @Select("""
+            SELECT
+            	a.id,
+            	a.country,
+            	a.area_code,
+            	a.phone_number,
+            	a.source,
+            	a.banned,
+            	a.password_reset,
+            	a.email_reset,
+            	b.invite_link,
+            	b.x_api_key,
+            	b.friend_num,
+            	c.auth_param,
+                d.maximum_card_upgrade_price,
+                d.user_agent,
+                GREATEST(a.modified_time,
+                         COALESCE(b.modified_time, a.modified_time),
+                         COALESCE(c.modified_time, a.modified_time),
+                         COALESCE(d.modified_time, a.modified_time)) AS modified_time
+            FROM
+            	telegram_user a
+            	LEFT JOIN user b ON a.id = b.user_id
+            	LEFT JOIN login_info c ON a.id = c.user_id
+                left join user_config d on a.id=d.user_id
+            WHERE
+            	a.modified_time >= #{modifiedTime}
+                or b.modified_time >= #{modifiedTime}
+                or c.modified_time >= #{modifiedTime}
+                or d.modified_time >= #{modifiedTime}
+            ORDER BY
+            	a.id ASC
+            """)
+    List<BabyDogePawsUser> listModifiedBabyDogeUsers(LocalDateTime modifiedTime);
+
+    @Select("""
+            SELECT
+            	a.id,
+            	a.country,
+            	a.area_code,
+            	a.phone_number,
+            	a.source,
+            	a.banned,
+            	a.password_reset,
+            	a.email_reset,
+            	b.invite_link,
+            	b.x_api_key,
+            	b.friend_num,
+            	c.auth_param,
+                d.maximum_card_upgrade_price,
+                d.user_agent,
+                GREATEST(a.modified_time,
+                         COALESCE(b.modified_time, a.modified_time),
+                         COALESCE(c.modified_time, a.modified_time),
+                         COALESCE(d.modified_time, a.modified_time)) AS modified_time
+            FROM
+            	telegram_user a
+            	LEFT JOIN user b ON a.id = b.user_id
+            	LEFT JOIN login_info c ON a.id = c.user_id
+                left join user_config d on a.id=d.user_id
+            WHERE
+            	a.id = #{id}
+            """)
+    BabyDogePawsUser getBabyDogeUserById(Integer id);
+
     @Insert("""
             INSERT INTO user ( user_id, balance,profit_per_hour,level,invite_link, x_api_key, friend_num )
             VALUES
@@ -8,4 +8,8 @@ public class BabyDogePawsException extends RuntimeException {
     public BabyDogePawsException(String message) {
         super(message);
     }
+
+    public BabyDogePawsException(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
@@ -14,12 +14,12 @@ import red.zyc.babydogepaws.common.constant.Constants;
 import red.zyc.babydogepaws.common.util.CommonUtil;
 import red.zyc.babydogepaws.common.util.FileUtil;
 import red.zyc.babydogepaws.common.util.MailUtil;
+import red.zyc.babydogepaws.dao.BabyDogePawsUserRegistry;
+import red.zyc.babydogepaws.dao.DatabaseExecutor;
 import red.zyc.babydogepaws.dao.LoginInfoMapper;
-import red.zyc.babydogepaws.dao.TelegramUserMapper;
-import red.zyc.babydogepaws.dao.UserMapper;
 import red.zyc.babydogepaws.exception.BabyDogePawsException;
+import red.zyc.babydogepaws.jfr.LoginPhaseEvent;
 import red.zyc.babydogepaws.model.persistent.BabyDogePawsUser;
-import red.zyc.babydogepaws.model.request.BabyDogePawsGameRequestParam;
 import red.zyc.babydogepaws.selenium.SeleniumSupport;
 import red.zyc.kit.base.concurrency.IntervalBasedPoller;
 import red.zyc.kit.selenium.Chrome;
@@ -50,29 +50,34 @@ public class BabyDogePaws {
     private static final String TELEGRAM_URL = "https://web.telegram.org/a/";
 
     private final Environment environment;
-    private final TelegramUserMapper telegramUserMapper;
-    private final UserMapper userMapper;
+    private final BabyDogePawsUserRegistry babyDogePawsUserRegistry;
     private final LoginInfoMapper loginInfoMapper;
-    private final BabyDogePawsTask babyDogePawsTask;
+    private final DatabaseExecutor databaseExecutor;
+    private final TaskRegistry taskRegistry;
+    private final BabyDogePawsBootstrapper babyDogePawsBootstrapper;
 
-    public BabyDogePaws(Environment environment, TelegramUserMapper telegramUserMapper, UserMapper userMapper,
-                        LoginInfoMapper loginInfoMapper,
-                        BabyDogePawsTask babyDogePawsTask) {
+    public BabyDogePaws(Environment environment, BabyDogePawsUserRegistry babyDogePawsUserRegistry,
+                        LoginInfoMapper loginInfoMapper, DatabaseExecutor databaseExecutor, TaskRegistry taskRegistry,
+                        BabyDogePawsBootstrapper babyDogePawsBootstrapper) {
         this.environment = environment;
-        this.telegramUserMapper = telegramUserMapper;
-        this.userMapper = userMapper;
+        this.babyDogePawsUserRegistry = babyDogePawsUserRegistry;
         this.loginInfoMapper = loginInfoMapper;
-        this.babyDogePawsTask = babyDogePawsTask;
+        this.databaseExecutor = databaseExecutor;
+        this.taskRegistry = taskRegistry;
+        this.babyDogePawsBootstrapper = babyDogePawsBootstrapper;
     }
 
     /**
      * 启动
      */
     public void bootstrap() {
-        userMapper.listBannedBabyDogeUsers().forEach(user -> FileUtil.deleteDirectory(Paths.get(user.chromeDataDir())));
-        if (Arrays.asList(environment.getActiveProfiles()).contains("prod")) {
+        babyDogePawsUserRegistry.listBannedBabyDogeUsers().forEach(user -> FileUtil.deleteDirectory(Paths.get(user.chromeDataDir())));
+        var profiles = Arrays.asList(environment.getActiveProfiles());
+        if (profiles.contains("prod") || profiles.contains("sim")) {
             LOGGER.info("BabyDoge Paws is launching");
-            userMapper.listBabyDogeUsers().forEach(user -> babyDogePawsTask.schedule(new BabyDogePawsGameRequestParam(user)));
+
+            // 用户在预热窗口内分批激活，预热进度见日志或者/task/bootstrapStats
+            babyDogePawsBootstrapper.bootstrap(babyDogePawsUserRegistry.listBabyDogeUsers());
             LOGGER.info("BabyDoge Paws launches successfully");
         }
     }
@@ -84,6 +89,7 @@ public class BabyDogePaws {
      * @param failNum 模拟玩的过程失败次数，提供容错性
      */
     public void playBabyDogePaws(BabyDogePawsUser user, int failNum) {
+        var phases = new LoginPhaseEvent.Tracker(user.phoneNumber);
         try (var chrome = Chrome.builder()
                 .mode(Mode.ATTACH)
                 .addArgs("--user-data-dir=%s".formatted(user.chromeDataDir()), "--headless=new")
@@ -93,6 +99,7 @@ public class BabyDogePaws {
             var jsExecutor = (JavascriptExecutor) webDriver;
 
             // 加载页面
+            phases.next(LoginPhaseEvent.Phase.PAGE_LOAD);
             webDriver.get(BABY_DOGE_PAWS_URL);
 
             // 等待页面加载完毕
@@ -108,6 +115,7 @@ public class BabyDogePaws {
                     .throwIt(() -> new BabyDogePawsException("telegram页面加载失败"));
 
             // 点击play按钮
+            phases.next(LoginPhaseEvent.Phase.PLAY_CLICK);
             IntervalBasedPoller.builder()
                     .timing(Duration.ofSeconds(30), Duration.ofMillis(500))
                     .ignoreExceptions(Throwable.class)
@@ -137,6 +145,7 @@ public class BabyDogePaws {
                             this::isTrue);
 
             // 定位游戏iframe，定位成功后webdriver就会切换到这个iframe中
+            phases.next(LoginPhaseEvent.Phase.IFRAME);
             IntervalBasedPoller.builder()
                     .timing(Duration.ofSeconds(60), Duration.ofMillis(1000))
                     .ignoreExceptions(NoSuchElementException.class)
@@ -148,6 +157,7 @@ public class BabyDogePaws {
                     .orElseThrow(() -> new BabyDogePawsException("定位游戏iframe失败"));
 
             // 修改sessionStorage模拟手机登录
+            phases.next(LoginPhaseEvent.Phase.SESSION_STORAGE);
             String key = "__telegram__initParams";
             var item = IntervalBasedPoller.builder()
                     .timing(Duration.ofSeconds(30), Duration.ofMillis(1000))
@@ -162,6 +172,7 @@ public class BabyDogePaws {
             jsExecutor.executeScript(SET_TELEGRAM_APPS_SESSION_STORAGE_ITEM, key, mockPhoneLaunchParams);
 
             // 重新加载iframe使其能够在web端显示（reload后webdriver依旧在iframe中）
+            phases.next(LoginPhaseEvent.Phase.RELOAD);
             jsExecutor.executeScript(RELOAD_PAGE);
             IntervalBasedPoller.builder()
                     .timing(Duration.ofSeconds(30), Duration.ofMillis(1000))
@@ -172,23 +183,27 @@ public class BabyDogePaws {
                     .getAsOptional().orElseThrow(() -> new BabyDogePawsException("模拟手机登录失败"));
 
             // 其它线程执行任务时就能感知到最新的authParam了
+            user.localModifiedTime = LocalDateTime.now();
             user.authParam = JACKSON_OPERATOR.fromJsonString(item, Constants.OBJECT_DATA_TYPE).get("tgWebAppData") + "&referrer=";
 
             // 保存或更新登录信息
-            loginInfoMapper.saveOrUpdateLoginInfo(user.id, LocalDateTime.now(), user.authParam);
+            phases.next(LoginPhaseEvent.Phase.SAVE_LOGIN_INFO);
+            databaseExecutor.call(() -> loginInfoMapper.saveOrUpdateLoginInfo(user.id, LocalDateTime.now(), user.authParam));
 
+            phases.finish(true);
             LOGGER.info("[游戏登录成功]-{}:{}", user.phoneNumber, user.authParam);
 
         } catch (Throwable t) {
+            phases.finish(false);
 
             var currentFailNum = ++failNum;
             LOGGER.error(String.format("[游戏登录失败]-%s-%s:", user.phoneNumber, currentFailNum), t);
 
             // 游戏登录失败3次则取消所有定时任务
             if (currentFailNum == 3) {
-                user.cancelAllTask();
+                taskRegistry.runtime(user).cancelAllTask();
                 if (isTelegramBanned(user)) {
-                    telegramUserMapper.updateTelegramUserBanned(user.id, 1);
+                    babyDogePawsUserRegistry.updateTelegramUserBanned(user.id, 1);
                     MailUtil.sendTextMail(user.phoneNumber + "telegram被ban了", "");
                 } else {
                     MailUtil.sendTextMail(user.phoneNumber + "游戏登录失败", CommonUtil.convertThrowableToString(t));
@@ -3,32 +3,52 @@ package red.zyc.babydogepaws.game;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
-import red.zyc.babydogepaws.common.constant.Constants;
+import red.zyc.babydogepaws.common.Functions;
 import red.zyc.babydogepaws.common.util.ApplicationContextHolder;
 import red.zyc.babydogepaws.common.util.WebUtil;
+import red.zyc.babydogepaws.config.BabyDogePawsProperties;
+import red.zyc.babydogepaws.dao.DatabaseExecutor;
 import red.zyc.babydogepaws.dao.UserMapper;
 import red.zyc.babydogepaws.exception.BabyDogePawsApiException;
+import red.zyc.babydogepaws.game.BabyDogePawsApiRequest.Request;
+import red.zyc.babydogepaws.game.BabyDogePawsApiRequest.RetryPolicy;
+import red.zyc.babydogepaws.jfr.ApiCallEvent;
+import red.zyc.babydogepaws.metrics.BabyDogePawsMetrics;
 import red.zyc.babydogepaws.model.persistent.BabyDogePawsUser;
 import red.zyc.babydogepaws.model.request.BabyDogePawsGameRequestParam;
 import red.zyc.babydogepaws.model.request.Mine;
 import red.zyc.babydogepaws.model.request.ResolveChannel;
 import red.zyc.babydogepaws.model.request.UpgradeCard;
+import red.zyc.babydogepaws.model.response.AuthResult;
+import red.zyc.babydogepaws.model.response.BoostsInfo;
+import red.zyc.babydogepaws.model.response.CardsSnapshot;
+import red.zyc.babydogepaws.model.response.ChannelsInfo;
+import red.zyc.babydogepaws.model.response.GameUser;
+import red.zyc.babydogepaws.model.response.MineResult;
 
 import java.net.http.HttpClient;
-import java.net.http.HttpResponse;
 import java.time.Duration;
-import java.util.ArrayList;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static red.zyc.babydogepaws.game.BabyDogePawsApiRequest.Request.*;
 
 /**
- * BabyDogePaws游戏http接口
+ * BabyDogePaws游戏http接口<br>
+ * 所有接口都通过{@link #execute(Request, BabyDogePawsGameRequestParam)}这一个异步管道执行，
+ * 每个接口的响应类型、重试策略以及日志级别都由{@link Request}声明，调用方可以自由组合返回的{@link CompletableFuture}
  *
  * @author allurx
  */
@@ -36,100 +56,246 @@ import static red.zyc.babydogepaws.game.BabyDogePawsApiRequest.Request.*;
 public class BabyDogePawsApi {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(BabyDogePawsApi.class);
-    private static final HttpClient CLIENT = HttpClient.newBuilder()
-            // 使用HTTP_2时，同时发起的请求太多会发生以下问题
-            // java.io.IOException: too many concurrent streams
-            // java.io.IOException: /10.5.0.10:58614: GOAWAY received
-            .version(HttpClient.Version.HTTP_1_1)
-            .connectTimeout(Duration.ofSeconds(30L))
-            .executor(Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("BabyDogePawsApiRequester-", 0).factory()))
-            .build();
-    private static final ConcurrentHashMap<Integer, ReentrantLock> USER_LOCKS = new ConcurrentHashMap<>();
+
+    /**
+     * 发送请求以及处理响应的线程池，响应流的解压缩和反序列化是阻塞操作，不能放到默认的ForkJoinPool中执行
+     */
+    private static final ExecutorService EXECUTOR = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("BabyDogePawsApiRequester-", 0).factory());
+
+    /**
+     * 每个用户正在进行中的授权，同一个用户同一时刻只会有一个授权请求
+     */
+    private static final ConcurrentHashMap<Integer, CompletableFuture<Optional<AuthResult>>> AUTHORIZATIONS = new ConcurrentHashMap<>();
     private final UserMapper userMapper;
+    private final DatabaseExecutor databaseExecutor;
+    private final TaskRegistry taskRegistry;
+    private final BabyDogePawsMetrics metrics;
+    private final BabyDogePawsApiLimiter limiter;
+    private final BabyDogePawsApiCircuitBreaker circuitBreaker;
+    private final Http2StreamGovernor streamGovernor;
+    private final HttpClient client;
+    private final Duration userStateMaxAge;
+
+    /**
+     * 每个接口的日志配置
+     */
+    private final Map<Request, BabyDogePawsProperties.ApiLogPolicy> logPolicies = new EnumMap<>(Request.class);
 
-    public BabyDogePawsApi(UserMapper userMapper) {
+    public BabyDogePawsApi(UserMapper userMapper, DatabaseExecutor databaseExecutor, TaskRegistry taskRegistry, BabyDogePawsMetrics metrics, BabyDogePawsApiLimiter limiter, BabyDogePawsApiCircuitBreaker circuitBreaker,
+                           Http2StreamGovernor streamGovernor, BabyDogePawsProperties babyDogePawsProperties) {
         this.userMapper = userMapper;
+        this.databaseExecutor = databaseExecutor;
+        this.taskRegistry = taskRegistry;
+        this.metrics = metrics;
+        this.limiter = limiter;
+        this.circuitBreaker = circuitBreaker;
+        this.streamGovernor = streamGovernor;
+
+        BabyDogePawsApiRequest.baseUrl(babyDogePawsProperties.http().baseUrl());
+
+        // 使用HTTP_2时，同时发起的请求太多会发生以下问题，由Http2StreamGovernor控制同时进行中的流
+        // java.io.IOException: too many concurrent streams
+        // java.io.IOException: /10.5.0.10:58614: GOAWAY received
+        this.client = HttpClient.newBuilder()
+                .version(babyDogePawsProperties.http().version())
+                .connectTimeout(Duration.ofSeconds(30L))
+                .executor(EXECUTOR)
+                .build();
+        this.userStateMaxAge = babyDogePawsProperties.userState().maxAge();
+        var apiLog = babyDogePawsProperties.apiLog();
+        for (Request request : Request.values()) {
+            logPolicies.put(request, apiLog.resolve(null));
+        }
+        apiLog.endpoints().forEach((endpoint, policy) -> logPolicies.put(Request.of(endpoint), apiLog.resolve(policy)));
     }
 
     /**
-     * 获取每个{@link BabyDogePawsUser}的锁，
-     * 同一时刻同一个用户授权方法与其它方法执行互斥，其它方法可以并行执行
+     * 按照{@link Request#retryPolicy}执行请求
      *
-     * @param userId {@link BabyDogePawsUser#id}
-     * @return 每个用户的锁
+     * @param request {@link Request}
+     * @param param   {@link BabyDogePawsGameRequestParam}
+     * @param <T>     响应body反序列化的目标类型
+     * @return 响应结果，请求失败时为空
      */
-    private static ReentrantLock getUserLock(Integer userId) {
-        return USER_LOCKS.computeIfAbsent(userId, k -> new ReentrantLock());
+    private <T> CompletableFuture<Optional<T>> execute(Request request, BabyDogePawsGameRequestParam param) {
+        return execute(request, param, request.retryPolicy, 1);
     }
 
     /**
-     * 如果x-api-key过期的话则需要重新授权一下
+     * 执行请求，成功时解析响应结果，请求发送前需要先通过{@link BabyDogePawsApiCircuitBreaker}以及{@link BabyDogePawsApiLimiter}<br>
+     * 响应码为401时按照{@link RetryPolicy}重新授权后再次请求，响应码为429或者5xx时退避一段时间后再次请求，
+     * 请求次数达到{@link RetryPolicy#maxAttempts()}后直接返回空，等待下一个定时任务执行
      *
-     * @param param {@link BabyDogePawsGameRequestParam}
-     * @param code  http响应码
-     * @return authorize任务有没有成功被执行
+     * @param request     {@link Request}
+     * @param param       {@link BabyDogePawsGameRequestParam}
+     * @param retryPolicy {@link RetryPolicy}
+     * @param attempt     当前是第几次请求
+     * @param <T>         响应body反序列化的目标类型
+     * @return 响应结果，请求失败时为空
+     */
+    private <T> CompletableFuture<Optional<T>> execute(Request request, BabyDogePawsGameRequestParam param, RetryPolicy retryPolicy, int attempt) {
+        if (!circuitBreaker.tryAcquire()) {
+            LOGGER.debug("[{}被熔断]-{}:{}", request.action, request.describe(param), attempt);
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        var permit = limiter.acquire(request);
+        if (permit.isEmpty()) {
+            LOGGER.warn("[{}被限流]-{}:{}", request.action, request.describe(param), attempt);
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        var xApiKey = param.user.xApiKey;
+        var event = ApiCallEvent.of(request, param.user.phoneNumber, attempt);
+        var sentAt = new AtomicLong();
+        return delay(permit.get())
+                .thenCompose(ignored -> {
+                    event.begin();
+                    sentAt.set(System.nanoTime());
+                    return streamGovernor.sendAsync(client, request.build(param), request.<T>bodyHandler());
+                })
+                .whenComplete((response, throwable) -> {
+                    var status = response == null ? -1 : response.statusCode();
+                    event.complete(status);
+                    if (sentAt.get() != 0) {
+                        metrics.apiCall(request, status, System.nanoTime() - sentAt.get());
+                    }
+                    if (throwable != null || response.statusCode() >= 500) {
+                        circuitBreaker.onFailure();
+                    } else {
+                        circuitBreaker.onSuccess();
+                    }
+                })
+                .thenComposeAsync(response -> {
+                    if (response.statusCode() == 200) {
+                        var logPolicy = logPolicies.get(request);
+                        if (LOGGER.isEnabledForLevel(request.logLevel) && sampled(logPolicy)) {
+                            LOGGER.atLevel(request.logLevel).log("[{}成功]-{}:{}", request.action, request.describe(param), new ResponseLog(request, response, logPolicy, request.logBody));
+                        }
+                        return CompletableFuture.completedFuture(Optional.of(WebUtil.parseJsonResponse(response)
+                                .orElseThrow(() -> new BabyDogePawsApiException(request + "响应结果为空"))));
+                    }
+
+                    LOGGER.warn("[{}失败]-{}:{}:{}", request.action, request.describe(param), attempt, new ResponseLog(request, response, logPolicies.get(request), true));
+
+                    // authParam过期了或者不正确，需要重新登录一下
+                    if (request == AUTHORIZE && response.statusCode() == 400) {
+                        ApplicationContextHolder.getBean(BabyDogePaws.class).playBabyDogePaws(param.user, 0);
+                    }
+
+                    // x-api-key过期了，重新授权成功后再次请求
+                    if (retryPolicy.shouldReauthorize(response.statusCode(), attempt)) {
+                        return reauthorize(param, xApiKey).thenCompose(authorized -> authorized
+                                ? execute(request, param, retryPolicy.reauthorized(), attempt + 1)
+                                : CompletableFuture.completedFuture(Optional.empty()));
+                    }
+
+                    // 游戏服务器压力过大，退避一段时间后再次请求
+                    if (retryPolicy.shouldBackoff(response.statusCode(), attempt)) {
+                        var backoff = limiter.backoff(attempt, response.headers());
+                        if (backoff.isPresent()) {
+                            return delay(backoff.get()).thenCompose(ignored -> execute(request, param, retryPolicy, attempt + 1));
+                        }
+                    }
+
+                    // 其它错误码直接返回，等待下一个定时任务执行直到游戏服务器恢复
+                    return CompletableFuture.completedFuture(Optional.<T>empty());
+                }, EXECUTOR);
+    }
+
+    /**
+     * @param logPolicy 接口的日志配置
+     * @return 成功请求的日志是否被采样
      */
-    private boolean authorizeSuccess(BabyDogePawsGameRequestParam param, int code) {
-        if (code == 401) {
-            authorize(param);
-            return !param.user.tasksCanceled;
+    private static boolean sampled(BabyDogePawsProperties.ApiLogPolicy logPolicy) {
+        return logPolicy.sampleRate() >= 1 || ThreadLocalRandom.current().nextDouble() < logPolicy.sampleRate();
+    }
+
+    /**
+     * 延迟一段时间，等待期间不会占用任何线程
+     *
+     * @param delay 延迟时间
+     * @return 延迟结束后完成的{@link CompletableFuture}
+     */
+    private static CompletableFuture<Void> delay(Duration delay) {
+        return delay.isZero()
+                ? CompletableFuture.completedFuture(null)
+                : CompletableFuture.runAsync(() -> {
+        }, CompletableFuture.delayedExecutor(delay.toNanos(), TimeUnit.NANOSECONDS, EXECUTOR));
+    }
+
+    /**
+     * 重新授权<br>
+     * 如果发起请求之后x-api-key已经被其它线程刷新了，那么直接使用新的x-api-key重试，不需要再次授权
+     *
+     * @param param   {@link BabyDogePawsGameRequestParam}
+     * @param xApiKey 请求失败时使用的x-api-key
+     * @return 授权是否成功，如果{@link UserRuntime#cancelAllTask() 任务被取消了}也视为失败
+     */
+    private CompletableFuture<Boolean> reauthorize(BabyDogePawsGameRequestParam param, String xApiKey) {
+        if (!Objects.equals(xApiKey, param.user.xApiKey)) {
+            return CompletableFuture.completedFuture(!taskRegistry.runtime(param.user).tasksCanceled());
         }
-        return false;
+        return authorize(param).thenApply(authResult -> authResult.isPresent() && !taskRegistry.runtime(param.user).tasksCanceled());
     }
 
     /**
-     * 同一时刻同一个用户只允许一个线程执行游戏授权<br>
-     * 如果{@link BabyDogePawsUser#cancelAllTask() 登入失败次数过多导致任务被取消了}，
+     * 游戏授权，同一个用户并发的授权请求会共享同一个正在进行中的授权结果（single-flight），
+     * 所以x-api-key过期时大量并发的401响应只会触发一次授权请求<br>
+     * 如果{@link UserRuntime#cancelAllTask() 登入失败次数过多导致任务被取消了}，
      * 那么就不需要执行该任务了
      *
      * @param param {@link BabyDogePawsGameRequestParam}
-     * @return 用户信息
+     * @return 授权信息
      */
-    public Map<String, Object> authorize(BabyDogePawsGameRequestParam param) {
-        var userLock = getUserLock(param.user.id);
-        userLock.lock();
-        try {
-            return param.user.tasksCanceled ? new HashMap<>() : CLIENT.sendAsync(AUTHORIZE.build(param), HttpResponse.BodyHandlers.ofString())
-                    .<Map<String, Object>>thenApplyAsync(response -> {
-                        if (response.statusCode() != 200) {
-
-                            LOGGER.warn("[授权失败]-{}:{}:{}", param.user.phoneNumber, param.user.authParam, WebUtil.formatJsonResponse(response, true));
-
-                            // authParam过期了或者不正确，需要重新登录一下
-                            if (response.statusCode() == 400) {
-                                ApplicationContextHolder.getBean(BabyDogePaws.class).playBabyDogePaws(param.user, 0);
-                                return new HashMap<>();
-                            }
-
-                            // 其它错误码直接返回，等待下一个定时任务执行直到游戏服务器恢复
-                            return new HashMap<>();
-
-                        } else {
-                            LOGGER.info("[授权成功]-{}:{}:{}", param.user.phoneNumber, param.user.authParam, WebUtil.formatJsonResponse(response, true));
-                            return WebUtil.parseJsonResponse(response, Constants.OBJECT_DATA_TYPE).map(authData -> {
-
-                                // 更新游戏数据
-                                param.user.xApiKey = String.valueOf(authData.get("access_token"));
-
-                                // 保存或更新游戏账户的一些信息
-                                var friends = listFriends(param);
-                                userMapper.saveOrUpdateUser(
-                                        param.user.id,
-                                        Long.parseLong(authData.get("balance").toString()),
-                                        (int) authData.get("profit_per_hour"),
-                                        (int) authData.get("current_league"),
-                                        String.valueOf(friends.get("copy_link")),
-                                        param.user.xApiKey,
-                                        (Integer) friends.get("friends_count"));
-                                return authData;
-                            }).orElseThrow(() -> new BabyDogePawsApiException("authorize响应结果为空"));
-                        }
-                    })
-                    .join();
-
-        } finally {
-            userLock.unlock();
+    public CompletableFuture<Optional<AuthResult>> authorize(BabyDogePawsGameRequestParam param) {
+        if (taskRegistry.runtime(param.user).tasksCanceled()) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        var authorization = new CompletableFuture<Optional<AuthResult>>();
+        var inFlight = AUTHORIZATIONS.putIfAbsent(param.user.id, authorization);
+        if (inFlight != null) {
+            return inFlight.copy();
         }
+
+        // 先移除再完成，保证授权完成后到达的调用方能够看到新的x-api-key或者发起新的授权
+        doAuthorize(param).whenComplete((authResult, throwable) -> {
+            AUTHORIZATIONS.remove(param.user.id, authorization);
+            if (throwable != null) {
+                authorization.completeExceptionally(throwable);
+            } else {
+                authorization.complete(authResult);
+            }
+        });
+        return authorization.copy();
+    }
+
+    private CompletableFuture<Optional<AuthResult>> doAuthorize(BabyDogePawsGameRequestParam param) {
+        return this.<AuthResult>execute(AUTHORIZE, param).thenCompose(result -> {
+            if (result.isEmpty()) {
+                return CompletableFuture.completedFuture(result);
+            }
+            var authResult = result.get();
+
+            // 更新游戏数据
+            param.user.localModifiedTime = LocalDateTime.now();
+            param.user.xApiKey = authResult.accessToken();
+            taskRegistry.runtime(param.user).state.updateAndGet(state -> UserState.of(state, authResult, System.nanoTime()));
+
+            // 保存或更新游戏账户的一些信息，此时授权还没有完成，所以获取好友列表时不能再重新授权，否则会等待自己。
+            // 这里都是异步串联的，不能阻塞完成授权请求的线程，所有等待同一个授权结果的调用方都依赖这个线程
+            return this.<Map<String, Object>>execute(LIST_FRIENDS, param, RetryPolicy.NONE, 1)
+                    .thenCompose(friendsResult -> {
+                        var friends = friendsResult.orElseGet(HashMap::new);
+                        return databaseExecutor.submit(() -> userMapper.saveOrUpdateUser(
+                                param.user.id,
+                                authResult.balance().longValue(),
+                                authResult.profitPerHour(),
+                                authResult.currentLeague(),
+                                String.valueOf(friends.get("copy_link")),
+                                param.user.xApiKey,
+                                Functions.convert(friends.get("friends_count"), o -> Integer.valueOf(o.toString()), null)));
+                    })
+                    .thenApply(rows -> result);
+        });
     }
 
     /**
@@ -138,40 +304,35 @@ public class BabyDogePawsApi {
      * @param param {@link BabyDogePawsGameRequestParam}
      * @return 用户信息
      */
-    public Map<String, Object> getMe(BabyDogePawsGameRequestParam param) {
-        return CLIENT.sendAsync(GET_ME.build(param), HttpResponse.BodyHandlers.ofString())
-                .<Map<String, Object>>thenApplyAsync(response -> {
-                    if (response.statusCode() != 200) {
-                        LOGGER.warn("[获取用户信息失败]-{}:{}", param.user.phoneNumber, WebUtil.formatJsonResponse(response, true));
-                        return authorizeSuccess(param, response.statusCode()) ? getMe(param) : new HashMap<>();
-                    } else {
-                        LOGGER.info("[获取用户信息成功]-{}:{}", param.user.phoneNumber, WebUtil.formatJsonResponse(response, false));
-                        return WebUtil.parseJsonResponse(response, Constants.OBJECT_DATA_TYPE).
-                                orElseThrow(() -> new BabyDogePawsApiException("getMe响应结果为空"));
-                    }
-                })
-                .join();
+    public CompletableFuture<Optional<GameUser>> getMe(BabyDogePawsGameRequestParam param) {
+        return this.<GameUser>execute(GET_ME, param).thenApply(result -> {
+            result.ifPresent(gameUser -> taskRegistry.runtime(param.user).state.set(UserState.of(gameUser, System.nanoTime())));
+            return result;
+        });
+    }
+
+    /**
+     * 获取用户的状态快照，快照没有过期时直接返回，否则调用{@link #getMe}刷新快照
+     *
+     * @param param {@link BabyDogePawsGameRequestParam}
+     * @return 用户的状态快照
+     */
+    public CompletableFuture<Optional<UserState>> getState(BabyDogePawsGameRequestParam param) {
+        var state = taskRegistry.runtime(param.user).state.get();
+        if (state != null && state.isFresh(userStateMaxAge, System.nanoTime())) {
+            return CompletableFuture.completedFuture(Optional.of(state));
+        }
+        return getMe(param).thenApply(result -> result.map(gameUser -> taskRegistry.runtime(param.user).state.get()));
     }
 
     /**
      * 采集每日奖励
      *
      * @param param {@link BabyDogePawsGameRequestParam}
-     * @return 每日奖励信息
+     * @return 每日奖励信息，请求失败时为空
      */
-    public Map<String, Object> pickDailyBonus(BabyDogePawsGameRequestParam param) {
-        return CLIENT.sendAsync(PICK_DAILY_BONUS.build(param), HttpResponse.BodyHandlers.ofString())
-                .<Map<String, Object>>thenApplyAsync(response -> {
-                    if (response.statusCode() != 200) {
-                        LOGGER.warn("[采集每日奖励失败]-{}:{}", param.user.phoneNumber, WebUtil.formatJsonResponse(response, true));
-                        return authorizeSuccess(param, response.statusCode()) ? pickDailyBonus(param) : new HashMap<>();
-                    } else {
-                        LOGGER.info("[采集每日奖励成功]-{}:{}", param.user.phoneNumber, WebUtil.formatJsonResponse(response, true));
-                        return WebUtil.parseJsonResponse(response, Constants.OBJECT_DATA_TYPE)
-                                .orElseThrow(() -> new BabyDogePawsApiException("pickDailyBonus响应结果为空"));
-                    }
-                })
-                .join();
+    public CompletableFuture<Optional<Map<String, Object>>> pickDailyBonus(BabyDogePawsGameRequestParam param) {
+        return execute(PICK_DAILY_BONUS, param);
     }
 
     /**
@@ -180,19 +341,8 @@ public class BabyDogePawsApi {
      * @param param {@link BabyDogePawsGameRequestParam}
      * @return 每日奖励信息
      */
-    public Map<String, Object> getDailyBonuses(BabyDogePawsGameRequestParam param) {
-        return CLIENT.sendAsync(GET_DAILY_BONUSES.build(param), HttpResponse.BodyHandlers.ofString())
-                .<Map<String, Object>>thenApplyAsync(response -> {
-                    if (response.statusCode() != 200) {
-                        LOGGER.warn("[获取每日奖励内容失败]-{}:{}", param.user.phoneNumber, WebUtil.formatJsonResponse(response, true));
-                        return authorizeSuccess(param, response.statusCode()) ? getDailyBonuses(param) : new HashMap<>();
-                    } else {
-                        LOGGER.info("[获取每日奖励内容成功]-{}:{}", param.user.phoneNumber, WebUtil.formatJsonResponse(response, true));
-                        return WebUtil.parseJsonResponse(response, Constants.OBJECT_DATA_TYPE)
-                                .orElseThrow(() -> new BabyDogePawsApiException("getDailyBonuses响应结果为空"));
-                    }
-                })
-                .join();
+    public CompletableFuture<Map<String, Object>> getDailyBonuses(BabyDogePawsGameRequestParam param) {
+        return this.<Map<String, Object>>execute(GET_DAILY_BONUSES, param).thenApply(result -> result.orElseGet(HashMap::new));
     }
 
     /**
@@ -201,19 +351,8 @@ public class BabyDogePawsApi {
      * @param param {@link BabyDogePawsGameRequestParam}
      * @return 所有卡片
      */
-    public List<Map<String, Object>> listCards(BabyDogePawsGameRequestParam param) {
-        return CLIENT.sendAsync(LIST_CARDS.build(param), HttpResponse.BodyHandlers.ofString())
-                .<List<Map<String, Object>>>thenApplyAsync(response -> {
-                    if (response.statusCode() != 200) {
-                        LOGGER.warn("[获取卡片列表失败]-{}:{}", param.user.phoneNumber, WebUtil.formatJsonResponse(response, true));
-                        return authorizeSuccess(param, response.statusCode()) ? listCards(param) : new ArrayList<>();
-                    } else {
-                        LOGGER.info("[获取卡片列表成功]-{}:{}", param.user.phoneNumber, WebUtil.formatJsonResponse(response, false));
-                        return WebUtil.parseJsonResponse(response, Constants.LIST_OBJECT_DATA_TYPE)
-                                .orElseThrow(() -> new BabyDogePawsApiException("listCards响应结果为空"));
-                    }
-                })
-                .join();
+    public CompletableFuture<Optional<CardsSnapshot>> listCards(BabyDogePawsGameRequestParam param) {
+        return this.<List<CardsSnapshot.CardCategory>>execute(LIST_CARDS, param).thenApply(result -> result.map(cards -> new CardsSnapshot(null, cards)));
     }
 
     /**
@@ -222,19 +361,11 @@ public class BabyDogePawsApi {
      * @param upgradeCard {@link UpgradeCard}
      * @return 卡片升级后的信息，其中包括用户信息和升级后的所有卡片信息
      */
-    public Map<String, Object> upgradeCard(UpgradeCard upgradeCard) {
-        return CLIENT.sendAsync(UPGRADE_CARD.build(upgradeCard), HttpResponse.BodyHandlers.ofString())
-                .<Map<String, Object>>thenApplyAsync(response -> {
-                    if (response.statusCode() != 200) {
-                        LOGGER.warn("[卡片升级失败]-{}:{}:{}:{}:{}", upgradeCard.user.phoneNumber, upgradeCard.balance, upgradeCard.card.cardId, upgradeCard.upgradeInfo.cost, WebUtil.formatJsonResponse(response, true));
-                        return authorizeSuccess(upgradeCard, response.statusCode()) ? upgradeCard(upgradeCard) : new HashMap<>();
-                    } else {
-                        LOGGER.info("[卡片升级成功]-{}:{}:{}:{}:{}", upgradeCard.user.phoneNumber, upgradeCard.balance, upgradeCard.card.cardId, upgradeCard.upgradeInfo.cost, WebUtil.formatJsonResponse(response, false));
-                        return WebUtil.parseJsonResponse(response, Constants.OBJECT_DATA_TYPE)
-                                .orElseThrow(() -> new BabyDogePawsApiException("cards响应结果为空"));
-                    }
-                })
-                .join();
+    public CompletableFuture<Optional<CardsSnapshot>> upgradeCard(UpgradeCard upgradeCard) {
+        return this.<CardsSnapshot>execute(UPGRADE_CARD, upgradeCard).thenApply(result -> {
+            result.ifPresent(snapshot -> taskRegistry.runtime(upgradeCard.user).state.updateAndGet(state -> UserState.of(state, snapshot.balance(), System.nanoTime())));
+            return result;
+        });
     }
 
     /**
@@ -243,19 +374,11 @@ public class BabyDogePawsApi {
      * @param param {@link BabyDogePawsGameRequestParam}
      * @return 挖矿后的信息
      */
-    public Map<String, Object> mine(Mine param) {
-        return CLIENT.sendAsync(MINE.build(param), HttpResponse.BodyHandlers.ofString())
-                .<Map<String, Object>>thenApplyAsync(response -> {
-                    if (response.statusCode() != 200) {
-                        LOGGER.warn("[挖矿失败]-{}:{}", param.user.phoneNumber, WebUtil.formatJsonResponse(response, true));
-                        return authorizeSuccess(param, response.statusCode()) ? mine(param) : new HashMap<>();
-                    } else {
-                        LOGGER.info("[挖矿成功]-{}:{}", param.user.phoneNumber, WebUtil.formatJsonResponse(response, true));
-                        return WebUtil.parseJsonResponse(response, Constants.OBJECT_DATA_TYPE)
-                                .orElseThrow(() -> new BabyDogePawsApiException("mine响应结果为空"));
-                    }
-                })
-                .join();
+    public CompletableFuture<Optional<MineResult>> mine(Mine param) {
+        return this.<MineResult>execute(MINE, param).thenApply(result -> {
+            result.map(MineResult::user).ifPresent(gameUser -> taskRegistry.runtime(param.user).state.set(UserState.of(gameUser, System.nanoTime())));
+            return result;
+        });
     }
 
     /**
@@ -264,82 +387,38 @@ public class BabyDogePawsApi {
      * @param param {@link BabyDogePawsGameRequestParam}
      * @return 所有任务
      */
-    public Map<String, Object> listChannels(BabyDogePawsGameRequestParam param) {
-        return CLIENT.sendAsync(LIST_CHANNEL.build(param), HttpResponse.BodyHandlers.ofString())
-                .<Map<String, Object>>thenApplyAsync(response -> {
-                    if (response.statusCode() != 200) {
-                        LOGGER.warn("[获取任务列表失败]-{}:{}", param.user.phoneNumber, WebUtil.formatJsonResponse(response, true));
-                        return authorizeSuccess(param, response.statusCode()) ? listChannels(param) : new HashMap<>();
-                    } else {
-                        LOGGER.info("[获取任务列表成功]-{}:{}", param.user.phoneNumber, WebUtil.formatJsonResponse(response, true));
-                        return WebUtil.parseJsonResponse(response, Constants.OBJECT_DATA_TYPE)
-                                .orElseThrow(() -> new BabyDogePawsApiException("listChannels响应结果为空"));
-                    }
-                })
-                .join();
+    public CompletableFuture<Optional<ChannelsInfo>> listChannels(BabyDogePawsGameRequestParam param) {
+        return execute(LIST_CHANNEL, param);
     }
 
     /**
      * 解决任务
      *
      * @param resolveChannel {@link ResolveChannel}
-     * @return 响应
+     * @return 响应，请求失败时为空
      */
-    public Map<String, Object> resolveChannel(ResolveChannel resolveChannel) {
-        return CLIENT.sendAsync(RESOLVE_CHANNEL.build(resolveChannel), HttpResponse.BodyHandlers.ofString())
-                .<Map<String, Object>>thenApplyAsync(response -> {
-                    if (response.statusCode() != 200) {
-                        LOGGER.warn("[解决任务失败]-{}:{}:{}", resolveChannel.user.phoneNumber, resolveChannel.channel.id(), WebUtil.formatJsonResponse(response, true));
-                        return authorizeSuccess(resolveChannel, response.statusCode()) ? resolveChannel(resolveChannel) : new HashMap<>();
-                    } else {
-                        LOGGER.info("[解决任务成功]-{}:{}:{}", resolveChannel.user.phoneNumber, resolveChannel.channel.id(), WebUtil.formatJsonResponse(response, true));
-                        return WebUtil.parseJsonResponse(response, Constants.OBJECT_DATA_TYPE)
-                                .orElseThrow(() -> new BabyDogePawsApiException("resolveChannel响应结果为空"));
-                    }
-                })
-                .join();
+    public CompletableFuture<Optional<Map<String, Object>>> resolveChannel(ResolveChannel resolveChannel) {
+        return execute(RESOLVE_CHANNEL, resolveChannel);
     }
 
     /**
      * 采集任务
      *
      * @param resolveChannel {@link ResolveChannel}
-     * @return 响应
+     * @return 响应，请求失败时为空
      */
-    public Map<String, Object> pickChannel(ResolveChannel resolveChannel) {
-        return CLIENT.sendAsync(PICK_CHANNEL.build(resolveChannel), HttpResponse.BodyHandlers.ofString())
-                .<Map<String, Object>>thenApplyAsync(response -> {
-                    if (response.statusCode() != 200) {
-                        LOGGER.warn("[采集任务失败]-{}:{}:{}", resolveChannel.user.phoneNumber, resolveChannel.channel.id(), WebUtil.formatJsonResponse(response, true));
-                        return authorizeSuccess(resolveChannel, response.statusCode()) ? pickChannel(resolveChannel) : new HashMap<>();
-                    } else {
-                        LOGGER.info("[采集任务成功]-{}:{}:{}", resolveChannel.user.phoneNumber, resolveChannel.channel.id(), WebUtil.formatJsonResponse(response, true));
-                        return WebUtil.parseJsonResponse(response, Constants.OBJECT_DATA_TYPE)
-                                .orElseThrow(() -> new BabyDogePawsApiException("pickChannel响应结果为空"));
-                    }
-                })
-                .join();
+    public CompletableFuture<Optional<Map<String, Object>>> pickChannel(ResolveChannel resolveChannel) {
+        return execute(PICK_CHANNEL, resolveChannel);
     }
 
     /**
      * 采集促销奖励
      *
      * @param param {@link BabyDogePawsGameRequestParam}
-     * @return 采集促销奖励响应
+     * @return 采集促销奖励响应，请求失败时为空
      */
-    public Map<String, Object> pickPromo(BabyDogePawsGameRequestParam param) {
-        return CLIENT.sendAsync(PICK_PROMO.build(param), HttpResponse.BodyHandlers.ofString())
-                .<Map<String, Object>>thenApplyAsync(response -> {
-                    if (response.statusCode() != 200) {
-                        LOGGER.warn("[参与促销失败]-{}:{}", param.user.phoneNumber, WebUtil.formatJsonResponse(response, true));
-                        return authorizeSuccess(param, response.statusCode()) ? pickPromo(param) : new HashMap<>();
-                    } else {
-                        LOGGER.info("[参与促销成功]-{}:{}", param.user.phoneNumber, WebUtil.formatJsonResponse(response, true));
-                        return WebUtil.parseJsonResponse(response, Constants.OBJECT_DATA_TYPE)
-                                .orElseThrow(() -> new BabyDogePawsApiException("pickPromo响应结果为空"));
-                    }
-                })
-                .join();
+    public CompletableFuture<Optional<Map<String, Object>>> pickPromo(BabyDogePawsGameRequestParam param) {
+        return execute(PICK_PROMO, param);
     }
 
     /**
@@ -348,19 +427,8 @@ public class BabyDogePawsApi {
      * @param param {@link BabyDogePawsGameRequestParam}
      * @return 响应
      */
-    public Map<String, Object> getPromo(BabyDogePawsGameRequestParam param) {
-        return CLIENT.sendAsync(GET_PROMO.build(param), HttpResponse.BodyHandlers.ofString())
-                .<Map<String, Object>>thenApplyAsync(response -> {
-                    if (response.statusCode() != 200) {
-                        LOGGER.warn("[获取促销信息失败]-{}:{}", param.user.phoneNumber, WebUtil.formatJsonResponse(response, true));
-                        return authorizeSuccess(param, response.statusCode()) ? getPromo(param) : new HashMap<>();
-                    } else {
-                        LOGGER.info("[获取促销信息成功]-{}:{}", param.user.phoneNumber, WebUtil.formatJsonResponse(response, true));
-                        return WebUtil.parseJsonResponse(response, Constants.OBJECT_DATA_TYPE)
-                                .orElseThrow(() -> new BabyDogePawsApiException("getPromo响应结果为空"));
-                    }
-                })
-                .join();
+    public CompletableFuture<Map<String, Object>> getPromo(BabyDogePawsGameRequestParam param) {
+        return this.<Map<String, Object>>execute(GET_PROMO, param).thenApply(result -> result.orElseGet(HashMap::new));
     }
 
     /**
@@ -369,19 +437,8 @@ public class BabyDogePawsApi {
      * @param param {@link BabyDogePawsGameRequestParam}
      * @return 响应
      */
-    public Map<String, Object> listFriends(BabyDogePawsGameRequestParam param) {
-        return CLIENT.sendAsync(LIST_FRIENDS.build(param), HttpResponse.BodyHandlers.ofString())
-                .<Map<String, Object>>thenApplyAsync(response -> {
-                    if (response.statusCode() != 200) {
-                        LOGGER.warn("[获取好友列表失败]-{}:{}", param.user.phoneNumber, WebUtil.formatJsonResponse(response, true));
-                        return authorizeSuccess(param, response.statusCode()) ? listFriends(param) : new HashMap<>();
-                    } else {
-                        LOGGER.info("[获取好友列表成功]-{}:{}", param.user.phoneNumber, WebUtil.formatJsonResponse(response, false));
-                        return WebUtil.parseJsonResponse(response, Constants.OBJECT_DATA_TYPE)
-                                .orElseThrow(() -> new BabyDogePawsApiException("listFriends响应结果为空"));
-                    }
-                })
-                .join();
+    public CompletableFuture<Map<String, Object>> listFriends(BabyDogePawsGameRequestParam param) {
+        return this.<Map<String, Object>>execute(LIST_FRIENDS, param).thenApply(result -> result.orElseGet(HashMap::new));
     }
 
     /**
@@ -390,19 +447,8 @@ public class BabyDogePawsApi {
      * @param param {@link BabyDogePawsGameRequestParam}
      * @return 响应
      */
-    public Map<String, Object> getBoosts(BabyDogePawsGameRequestParam param) {
-        return CLIENT.sendAsync(GET_BOOSTS.build(param), HttpResponse.BodyHandlers.ofString())
-                .<Map<String, Object>>thenApplyAsync(response -> {
-                    if (response.statusCode() != 200) {
-                        LOGGER.warn("[获取激励信息失败]-{}:{}", param.user.phoneNumber, WebUtil.formatJsonResponse(response, true));
-                        return authorizeSuccess(param, response.statusCode()) ? getBoosts(param) : new HashMap<>();
-                    } else {
-                        LOGGER.info("[获取激励信息成功]-{}:{}", param.user.phoneNumber, WebUtil.formatJsonResponse(response, true));
-                        return WebUtil.parseJsonResponse(response, Constants.OBJECT_DATA_TYPE)
-                                .orElseThrow(() -> new BabyDogePawsApiException("boosts响应结果为空"));
-                    }
-                })
-                .join();
+    public CompletableFuture<Optional<BoostsInfo>> getBoosts(BabyDogePawsGameRequestParam param) {
+        return execute(GET_BOOSTS, param);
     }
 
     /**
@@ -411,18 +457,7 @@ public class BabyDogePawsApi {
      * @param param {@link BabyDogePawsGameRequestParam}
      * @return 响应
      */
-    public Map<String, Object> useFullEnergyBoosts(BabyDogePawsGameRequestParam param) {
-        return CLIENT.sendAsync(USE_FULL_ENERGY_BOOSTS.build(param), HttpResponse.BodyHandlers.ofString())
-                .<Map<String, Object>>thenApplyAsync(response -> {
-                    if (response.statusCode() != 200) {
-                        LOGGER.warn("[使用全能量激励失败]-{}:{}", param.user.phoneNumber, WebUtil.formatJsonResponse(response, true));
-                        return authorizeSuccess(param, response.statusCode()) ? useFullEnergyBoosts(param) : new HashMap<>();
-                    } else {
-                        LOGGER.info("[使用全能量激励成功]-{}:{}", param.user.phoneNumber, WebUtil.formatJsonResponse(response, true));
-                        return WebUtil.parseJsonResponse(response, Constants.OBJECT_DATA_TYPE)
-                                .orElseThrow(() -> new BabyDogePawsApiException("boosts响应结果为空"));
-                    }
-                })
-                .join();
+    public CompletableFuture<Map<String, Object>> useFullEnergyBoosts(BabyDogePawsGameRequestParam param) {
+        return this.<Map<String, Object>>execute(USE_FULL_ENERGY_BOOSTS, param).thenApply(result -> result.orElseGet(HashMap::new));
     }
 }
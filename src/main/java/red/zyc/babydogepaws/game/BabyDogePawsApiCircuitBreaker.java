@@ -0,0 +1,154 @@
+/*
+ * Copyright 2024 allurx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package red.zyc.babydogepaws.game;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import red.zyc.babydogepaws.config.BabyDogePawsProperties;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 所有用户共享的游戏服务器熔断器<br>
+ * <ul>
+ *     <li>{@link State#CLOSED}：正常放行所有请求，连续失败次数达到阈值后进入{@link State#OPEN}</li>
+ *     <li>{@link State#OPEN}：拒绝所有请求，定时任务直接跳过，熔断时间结束后第一个请求作为探测请求并进入{@link State#HALF_OPEN}</li>
+ *     <li>{@link State#HALF_OPEN}：只有探测请求能够发出，探测成功则进入{@link State#CLOSED}，否则重新进入{@link State#OPEN}</li>
+ * </ul>
+ * 只有5xx响应和网络异常才会被视为失败，其它响应都说明游戏服务器是可用的
+ *
+ * @author allurx
+ */
+@Component
+public class BabyDogePawsApiCircuitBreaker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BabyDogePawsApiCircuitBreaker.class);
+
+    private final BabyDogePawsProperties.CircuitBreaker config;
+    private volatile State state = State.CLOSED;
+    private volatile long openUntilNanos;
+    private volatile int consecutiveFailures;
+    private long probeStartNanos;
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder opened = new LongAdder();
+
+    public BabyDogePawsApiCircuitBreaker(BabyDogePawsProperties babyDogePawsProperties) {
+        this.config = babyDogePawsProperties.circuitBreaker();
+    }
+
+    /**
+     * 定时任务执行前判断游戏服务器是否可能可用，只读取volatile变量，开销很小
+     *
+     * @return 熔断器关闭或者熔断时间已经结束时为true
+     */
+    public boolean allowsTraffic() {
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> System.nanoTime() - openUntilNanos >= 0;
+            case HALF_OPEN -> false;
+        };
+    }
+
+    /**
+     * 请求发出前判断是否放行，熔断时间结束后只放行一个探测请求
+     *
+     * @return 是否放行
+     */
+    public boolean tryAcquire() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        synchronized (this) {
+            var now = System.nanoTime();
+            var acquired = switch (state) {
+                case CLOSED -> true;
+                case OPEN -> now - openUntilNanos >= 0;
+
+                // 探测请求迟迟没有结果（例如没有被真正发出）时允许再探测一次
+                case HALF_OPEN -> now - probeStartNanos >= config.openDuration().toNanos();
+            };
+            if (!acquired) {
+                rejected.increment();
+                return false;
+            }
+            if (state != State.CLOSED) {
+                state = State.HALF_OPEN;
+                probeStartNanos = now;
+                LOGGER.info("[熔断器进入半开状态，发送探测请求]");
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 游戏服务器正常响应
+     */
+    public void onSuccess() {
+        if (state == State.CLOSED && consecutiveFailures == 0) {
+            return;
+        }
+        synchronized (this) {
+            consecutiveFailures = 0;
+            if (state != State.CLOSED) {
+                state = State.CLOSED;
+                LOGGER.info("[熔断器关闭，游戏服务器已恢复]");
+            }
+        }
+    }
+
+    /**
+     * 游戏服务器响应5xx或者网络异常
+     */
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= config.failureThreshold())) {
+            openUntilNanos = System.nanoTime() + config.openDuration().toNanos();
+            state = State.OPEN;
+            opened.increment();
+            LOGGER.warn("[熔断器打开，游戏服务器不可用]-{}:{}", consecutiveFailures, config.openDuration());
+        }
+    }
+
+    /**
+     * @return 熔断器的统计信息
+     */
+    public Stats stats() {
+        return new Stats(state, consecutiveFailures, opened.sum(), rejected.sum());
+    }
+
+    /**
+     * 熔断器状态
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * 熔断器统计信息
+     *
+     * @param state               当前状态
+     * @param consecutiveFailures 连续失败次数
+     * @param opened              熔断器打开的次数
+     * @param rejected            被熔断器拒绝的请求数
+     */
+    public record Stats(State state,
+                        int consecutiveFailures,
+                        long opened,
+                        long rejected) {
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2024 allurx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package red.zyc.babydogepaws.game;
+
+import org.springframework.stereotype.Component;
+import red.zyc.babydogepaws.config.BabyDogePawsProperties;
+import red.zyc.babydogepaws.game.BabyDogePawsApiRequest.Request;
+
+import java.net.http.HttpHeaders;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 游戏接口客户端限流器<br>
+ * 所有接口共享一个全局令牌桶，单个接口可以额外配置自己的令牌桶，令牌不足时请求会被延迟发送，
+ * 需要等待的时间超过{@link BabyDogePawsProperties.RateLimit#maxWait()}时请求会被直接拒绝。<br>
+ * 响应码为429或者5xx时按照指数退避加随机抖动计算重试等待时间，优先使用服务端返回的Retry-After
+ *
+ * @author allurx
+ */
+@Component
+public class BabyDogePawsApiLimiter {
+
+    private final BabyDogePawsProperties.RateLimit config;
+    private final TokenBucket globalBucket;
+    private final Map<Request, TokenBucket> endpointBuckets = new EnumMap<>(Request.class);
+
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder throttledNanos = new LongAdder();
+    private final LongAdder delayed = new LongAdder();
+    private final LongAdder delayedNanos = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public BabyDogePawsApiLimiter(BabyDogePawsProperties babyDogePawsProperties) {
+        this.config = babyDogePawsProperties.rateLimit();
+        this.globalBucket = config.permitsPerSecond() > 0 ? new TokenBucket(config.permitsPerSecond(), config.burst()) : null;
+        config.endpoints().forEach((endpoint, bucket) -> {
+            if (bucket.permitsPerSecond() > 0) {
+                endpointBuckets.put(Request.of(endpoint), new TokenBucket(bucket.permitsPerSecond(), bucket.burst()));
+            }
+        });
+    }
+
+    /**
+     * 为请求获取令牌
+     *
+     * @param request {@link Request}
+     * @return 发送请求前需要等待的时间，请求被拒绝时为空
+     */
+    public Optional<Duration> acquire(Request request) {
+        var maxWaitNanos = config.maxWait().toNanos();
+        var endpointBucket = endpointBuckets.get(request);
+        var endpointWait = endpointBucket == null ? 0L : endpointBucket.reserve(maxWaitNanos);
+        if (endpointWait < 0) {
+            rejected.increment();
+            return Optional.empty();
+        }
+        var globalWait = globalBucket == null ? 0L : globalBucket.reserve(maxWaitNanos);
+        if (globalWait < 0) {
+            if (endpointBucket != null) endpointBucket.refund();
+            rejected.increment();
+            return Optional.empty();
+        }
+        var waitNanos = Math.max(endpointWait, globalWait);
+        if (waitNanos > 0) {
+            throttled.increment();
+            throttledNanos.add(waitNanos);
+        }
+        return Optional.of(Duration.ofNanos(waitNanos));
+    }
+
+    /**
+     * 计算响应码为429或者5xx时下一次重试前的退避时间
+     *
+     * @param attempt 已经请求的次数
+     * @param headers 响应头
+     * @return 退避时间，Retry-After超过{@link BabyDogePawsProperties.Backoff#maxDelay()}时为空，表示不再重试
+     */
+    public Optional<Duration> backoff(int attempt, HttpHeaders headers) {
+        var backoff = config.backoff();
+        var delay = retryAfter(headers).orElseGet(() -> {
+            var exponential = backoff.initialDelay().toNanos() * Math.pow(backoff.multiplier(), attempt - 1);
+            var capped = (long) Math.min(exponential, backoff.maxDelay().toNanos());
+            return Duration.ofNanos(ThreadLocalRandom.current().nextLong(capped / 2, capped + 1));
+        });
+        if (delay.compareTo(backoff.maxDelay()) > 0) {
+            rejected.increment();
+            return Optional.empty();
+        }
+        delayed.increment();
+        delayedNanos.add(delay.toNanos());
+        return Optional.of(delay);
+    }
+
+    /**
+     * Retry-After可以是秒数也可以是http日期
+     *
+     * @param headers 响应头
+     * @return 服务端要求的等待时间
+     */
+    private static Optional<Duration> retryAfter(HttpHeaders headers) {
+        return headers.firstValue("Retry-After").map(String::trim).flatMap(value -> {
+            try {
+                return Optional.of(Duration.ofSeconds(Math.max(0, Long.parseLong(value))));
+            } catch (NumberFormatException e) {
+                try {
+                    var delay = Duration.between(ZonedDateTime.now(), ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME));
+                    return Optional.of(delay.isNegative() ? Duration.ZERO : delay);
+                } catch (RuntimeException ignored) {
+                    return Optional.empty();
+                }
+            }
+        });
+    }
+
+    /**
+     * @return 限流器的统计信息
+     */
+    public Stats stats() {
+        return new Stats(
+                throttled.sum(),
+                Duration.ofNanos(throttledNanos.sum()).toMillis(),
+                delayed.sum(),
+                Duration.ofNanos(delayedNanos.sum()).toMillis(),
+                rejected.sum());
+    }
+
+    /**
+     * 限流器统计信息
+     *
+     * @param throttled       因为令牌不足被延迟发送的请求数
+     * @param throttledMillis 因为令牌不足累计等待的时间
+     * @param delayed         响应码为429或者5xx后退避重试的次数
+     * @param delayedMillis   退避重试累计等待的时间
+     * @param rejected        等待令牌时间过长或者Retry-After过长而被放弃的请求数
+     */
+    public record Stats(long throttled,
+                        long throttledMillis,
+                        long delayed,
+                        long delayedMillis,
+                        long rejected) {
+    }
+}
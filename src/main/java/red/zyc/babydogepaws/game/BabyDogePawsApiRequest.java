@@ -1,12 +1,28 @@
 package red.zyc.babydogepaws.game;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.slf4j.event.Level;
+import red.zyc.babydogepaws.common.util.ContentEncoding;
+import red.zyc.babydogepaws.common.util.JsonBodyHandler;
+import red.zyc.babydogepaws.config.BabyDogePawsProperties;
+import red.zyc.babydogepaws.exception.BabyDogePawsException;
 import red.zyc.babydogepaws.model.request.BabyDogePawsGameRequestParam;
 import red.zyc.babydogepaws.model.request.Mine;
 import red.zyc.babydogepaws.model.request.ResolveChannel;
 import red.zyc.babydogepaws.model.request.UpgradeCard;
+import red.zyc.babydogepaws.model.response.AuthResult;
+import red.zyc.babydogepaws.model.response.BoostsInfo;
+import red.zyc.babydogepaws.model.response.CardsSnapshot;
+import red.zyc.babydogepaws.model.response.ChannelsInfo;
+import red.zyc.babydogepaws.model.response.GameUser;
+import red.zyc.babydogepaws.model.response.MineResult;
 
+import java.lang.reflect.Type;
 import java.net.URI;
 import java.net.http.HttpRequest;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 
@@ -17,178 +33,249 @@ import static red.zyc.kit.json.JsonOperator.JACKSON_OPERATOR;
  */
 public final class BabyDogePawsApiRequest {
 
+    private static final Type OBJECT_DATA_TYPE = new TypeReference<Map<String, Object>>() {
+    }.getType();
+    private static final Type CARD_CATEGORIES_TYPE = new TypeReference<List<CardsSnapshot.CardCategory>>() {
+    }.getType();
+
+    /**
+     * 游戏服务器地址，参考{@link BabyDogePawsProperties.Http#baseUrl()}
+     */
+    private static volatile String baseUrl = BabyDogePawsProperties.Http.DEFAULT_BASE_URL;
+
     private BabyDogePawsApiRequest() {
     }
 
+    /**
+     * 修改游戏服务器地址，例如指向本地的模拟器
+     *
+     * @param baseUrl 游戏服务器地址，不以/结尾
+     */
+    public static void baseUrl(String baseUrl) {
+        BabyDogePawsApiRequest.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+
+    private static URI uri(String path) {
+        return URI.create(baseUrl + path);
+    }
+
     public enum Request {
 
-        AUTHORIZE {
+        AUTHORIZE("授权", AuthResult.class, RetryPolicy.NO_REAUTHORIZE, Level.INFO, true) {
             @Override
             public HttpRequest build(BabyDogePawsGameRequestParam param) {
                 return builder(param)
-                        .uri(URI.create("https://backend.babydogepawsbot.com/authorize"))
+                        .uri(uri("/authorize"))
                         .header("Content-Type", "application/x-www-form-urlencoded")
                         .POST(HttpRequest.BodyPublishers.ofString(Optional.ofNullable(param.user.authParam).orElse("")))
                         .build();
             }
+
+            @Override
+            public String describe(BabyDogePawsGameRequestParam param) {
+                return param.user.phoneNumber + ":" + param.user.authParam;
+            }
         },
 
-        GET_ME {
+        GET_ME("获取用户信息", GameUser.class, RetryPolicy.READ, Level.DEBUG, false) {
             @Override
             public HttpRequest build(BabyDogePawsGameRequestParam param) {
                 return builder(param)
-                        .uri(URI.create("https://backend.babydogepawsbot.com/getMe"))
+                        .uri(uri("/getMe"))
                         .header(X_API_KEY, Optional.ofNullable(param.user.xApiKey).orElse(""))
                         .GET()
                         .build();
             }
+
+            @Override
+            public String summarize(Object data) {
+                GameUser user = (GameUser) data;
+                return "balance=" + user.balance() + ",energy=" + user.energy() + ",profitPerHour=" + user.profitPerHour();
+            }
         },
 
-        PICK_DAILY_BONUS {
+        PICK_DAILY_BONUS("采集每日奖励", OBJECT_DATA_TYPE, RetryPolicy.WRITE, Level.INFO, true) {
             @Override
             public HttpRequest build(BabyDogePawsGameRequestParam param) {
                 return builder(param)
-                        .uri(URI.create("https://backend.babydogepawsbot.com/pickDailyBonus"))
+                        .uri(uri("/pickDailyBonus"))
                         .header(X_API_KEY, Optional.ofNullable(param.user.xApiKey).orElse(""))
                         .POST(HttpRequest.BodyPublishers.ofString(""))
                         .build();
             }
         },
 
-        GET_DAILY_BONUSES {
+        GET_DAILY_BONUSES("获取每日奖励内容", OBJECT_DATA_TYPE, RetryPolicy.READ, Level.INFO, true) {
             @Override
             public HttpRequest build(BabyDogePawsGameRequestParam param) {
                 return builder(param)
-                        .uri(URI.create("https://backend.babydogepawsbot.com/getDailyBonuses"))
+                        .uri(uri("/getDailyBonuses"))
                         .header(X_API_KEY, Optional.ofNullable(param.user.xApiKey).orElse(""))
                         .GET()
                         .build();
             }
         },
 
-        LIST_CARDS {
+        LIST_CARDS("获取卡片列表", CARD_CATEGORIES_TYPE, RetryPolicy.READ, Level.DEBUG, false) {
             @Override
             public HttpRequest build(BabyDogePawsGameRequestParam param) {
                 return builder(param)
-                        .uri(URI.create("https://backend.babydogepawsbot.com/cards"))
+                        .uri(uri("/cards"))
                         .header(X_API_KEY, Optional.ofNullable(param.user.xApiKey).orElse(""))
                         .GET()
                         .build();
             }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public String summarize(Object data) {
+                List<CardsSnapshot.CardCategory> categories = (List<CardsSnapshot.CardCategory>) data;
+                return "categories=" + categories.size() + ",cards=" + categories.stream().mapToInt(category -> category.cards().size()).sum();
+            }
         },
 
-        UPGRADE_CARD {
+        UPGRADE_CARD("卡片升级", CardsSnapshot.class, RetryPolicy.WRITE, Level.INFO, false) {
             @Override
             public HttpRequest build(BabyDogePawsGameRequestParam param) {
                 UpgradeCard upgradeCard = (UpgradeCard) param;
                 return builder(param)
-                        .uri(URI.create("https://backend.babydogepawsbot.com/cards"))
+                        .uri(uri("/cards"))
                         .header("content-type", "application/json")
                         .header(X_API_KEY, Optional.ofNullable(param.user.xApiKey).orElse(""))
                         .POST(HttpRequest.BodyPublishers.ofString(JACKSON_OPERATOR.toJsonString(Map.of("id", upgradeCard.card.cardId))))
                         .build();
             }
+
+            @Override
+            public String describe(BabyDogePawsGameRequestParam param) {
+                UpgradeCard upgradeCard = (UpgradeCard) param;
+                return upgradeCard.user.phoneNumber + ":" + upgradeCard.balance + ":" + upgradeCard.card.cardId + ":" + upgradeCard.upgradeInfo.cost;
+            }
+
+            @Override
+            public String summarize(Object data) {
+                return "balance=" + ((CardsSnapshot) data).balance();
+            }
         },
 
-        MINE {
+        MINE("挖矿", MineResult.class, RetryPolicy.WRITE, Level.INFO, true) {
             @Override
             public HttpRequest build(BabyDogePawsGameRequestParam param) {
                 Mine mine = (Mine) param;
                 return builder(param)
-                        .uri(URI.create("https://backend.babydogepawsbot.com/mine"))
+                        .uri(uri("/mine"))
                         .header("content-type", "application/json")
                         .header(X_API_KEY, Optional.ofNullable(param.user.xApiKey).orElse(""))
                         .POST(HttpRequest.BodyPublishers.ofString(JACKSON_OPERATOR.toJsonString(Map.of("count", mine.count))))
                         .build();
             }
+
+            @Override
+            public String summarize(Object data) {
+                MineResult result = (MineResult) data;
+                var user = result.user();
+                return "mined=" + (result.mine() == null ? null : result.mine().mined())
+                        + ",balance=" + (user == null ? null : user.balance())
+                        + ",energy=" + (user == null ? null : user.energy());
+            }
         },
 
-        LIST_CHANNEL {
+        LIST_CHANNEL("获取任务列表", ChannelsInfo.class, RetryPolicy.READ, Level.INFO, true) {
             @Override
             public HttpRequest build(BabyDogePawsGameRequestParam param) {
                 return builder(param)
-                        .uri(URI.create("https://backend.babydogepawsbot.com/channels"))
+                        .uri(uri("/channels"))
                         .header(X_API_KEY, Optional.ofNullable(param.user.xApiKey).orElse(""))
                         .GET()
                         .build();
             }
         },
 
-        RESOLVE_CHANNEL {
+        RESOLVE_CHANNEL("解决任务", OBJECT_DATA_TYPE, RetryPolicy.WRITE, Level.INFO, true) {
             @Override
             public HttpRequest build(BabyDogePawsGameRequestParam param) {
                 ResolveChannel resolveChannel = (ResolveChannel) param;
                 return builder(param)
-                        .uri(URI.create("https://backend.babydogepawsbot.com/channels-resolve"))
+                        .uri(uri("/channels-resolve"))
                         .header("content-type", "application/json")
                         .header(X_API_KEY, Optional.ofNullable(param.user.xApiKey).orElse(""))
                         .POST(HttpRequest.BodyPublishers.ofString(JACKSON_OPERATOR.toJsonString(Map.of("channel_id", resolveChannel.channel.id()))))
                         .build();
             }
+
+            @Override
+            public String describe(BabyDogePawsGameRequestParam param) {
+                return param.user.phoneNumber + ":" + ((ResolveChannel) param).channel.id();
+            }
         },
 
-        PICK_CHANNEL {
+        PICK_CHANNEL("采集任务", OBJECT_DATA_TYPE, RetryPolicy.WRITE, Level.INFO, true) {
             @Override
             public HttpRequest build(BabyDogePawsGameRequestParam param) {
                 ResolveChannel resolveChannel = (ResolveChannel) param;
                 return builder(param)
-                        .uri(URI.create("https://backend.babydogepawsbot.com/channels"))
+                        .uri(uri("/channels"))
                         .header("content-type", "application/json")
                         .header(X_API_KEY, Optional.ofNullable(param.user.xApiKey).orElse(""))
                         .POST(HttpRequest.BodyPublishers.ofString(JACKSON_OPERATOR.toJsonString(Map.of("channel_id", resolveChannel.channel.id()))))
                         .build();
             }
+
+            @Override
+            public String describe(BabyDogePawsGameRequestParam param) {
+                return param.user.phoneNumber + ":" + ((ResolveChannel) param).channel.id();
+            }
         },
 
-        PICK_PROMO {
+        PICK_PROMO("参与促销", OBJECT_DATA_TYPE, RetryPolicy.WRITE, Level.INFO, true) {
             @Override
             public HttpRequest build(BabyDogePawsGameRequestParam param) {
                 return builder(param)
-                        .uri(URI.create("https://backend.babydogepawsbot.com/promo"))
+                        .uri(uri("/promo"))
                         .header(X_API_KEY, Optional.ofNullable(param.user.xApiKey).orElse(""))
                         .POST(HttpRequest.BodyPublishers.ofString(""))
                         .build();
             }
         },
 
-        GET_PROMO {
+        GET_PROMO("获取促销信息", OBJECT_DATA_TYPE, RetryPolicy.READ, Level.INFO, true) {
             @Override
             public HttpRequest build(BabyDogePawsGameRequestParam param) {
                 return builder(param)
-                        .uri(URI.create("https://backend.babydogepawsbot.com/promo"))
+                        .uri(uri("/promo"))
                         .header(X_API_KEY, Optional.ofNullable(param.user.xApiKey).orElse(""))
                         .GET()
                         .build();
             }
         },
 
-        LIST_FRIENDS {
+        LIST_FRIENDS("获取好友列表", OBJECT_DATA_TYPE, RetryPolicy.READ, Level.DEBUG, false) {
             @Override
             public HttpRequest build(BabyDogePawsGameRequestParam param) {
                 return builder(param)
-                        .uri(URI.create("https://backend.babydogepawsbot.com/friends"))
+                        .uri(uri("/friends"))
                         .header(X_API_KEY, Optional.ofNullable(param.user.xApiKey).orElse(""))
                         .GET()
                         .build();
             }
         },
 
-        GET_BOOSTS {
+        GET_BOOSTS("获取激励信息", BoostsInfo.class, RetryPolicy.READ, Level.INFO, true) {
             @Override
             public HttpRequest build(BabyDogePawsGameRequestParam param) {
                 return builder(param)
-                        .uri(URI.create("https://backend.babydogepawsbot.com/boosts"))
+                        .uri(uri("/boosts"))
                         .header(X_API_KEY, Optional.ofNullable(param.user.xApiKey).orElse(""))
                         .GET()
                         .build();
             }
         },
 
-        USE_FULL_ENERGY_BOOSTS {
+        USE_FULL_ENERGY_BOOSTS("使用全能量激励", OBJECT_DATA_TYPE, RetryPolicy.WRITE, Level.INFO, true) {
             @Override
             public HttpRequest build(BabyDogePawsGameRequestParam param) {
                 return builder(param)
-                        .uri(URI.create("https://backend.babydogepawsbot.com/boosts"))
+                        .uri(uri("/boosts"))
                         .header("content-type", "application/json")
                         .header(X_API_KEY, Optional.ofNullable(param.user.xApiKey).orElse(""))
                         .POST(HttpRequest.BodyPublishers.ofString(JACKSON_OPERATOR.toJsonString(Map.of("boost", "full_energy"))))
@@ -197,17 +284,94 @@ public final class BabyDogePawsApiRequest {
         },
         ;
 
+        /**
+         * 接口行为描述，用于输出日志
+         */
+        public final String action;
+
+        /**
+         * 接口重试策略
+         */
+        public final RetryPolicy retryPolicy;
+
+        /**
+         * 请求成功时的日志级别
+         */
+        public final Level logLevel;
+
+        /**
+         * 请求成功时日志中是否输出响应body，响应body很大的接口没必要输出
+         */
+        public final boolean logBody;
+
+        private final JsonBodyHandler<?> bodyHandler;
+
+        Request(String action, Type responseType, RetryPolicy retryPolicy, Level logLevel, boolean logBody) {
+            this.action = action;
+            this.retryPolicy = retryPolicy;
+            this.logLevel = logLevel;
+            this.logBody = logBody;
+            this.bodyHandler = JsonBodyHandler.of(JsonBodyHandler.OBJECT_MAPPER.constructType(responseType));
+        }
+
+        /**
+         * 根据配置文件中的接口名称获取对应的接口，忽略大小写以及-和_，例如upgrade-card、UPGRADE_CARD
+         *
+         * @param endpoint 接口名称
+         * @return {@link Request}
+         */
+        public static Request of(String endpoint) {
+            var normalized = normalize(endpoint);
+            return Arrays.stream(values())
+                    .filter(request -> normalize(request.name()).equals(normalized))
+                    .findFirst()
+                    .orElseThrow(() -> new BabyDogePawsException("未知的接口: " + endpoint));
+        }
+
+        private static String normalize(String endpoint) {
+            return endpoint.replace("-", "").replace("_", "").toLowerCase(Locale.ROOT);
+        }
+
         private static final String DEFAULT_USERAGENT = "Mozilla/5.0 (iPhone; CPU iPhone OS 16_0 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) Mobile/15E148";
         private static final String X_API_KEY = "x-api-key";
 
         public abstract HttpRequest build(BabyDogePawsGameRequestParam param);
 
+        /**
+         * 请求参数的日志描述，默认为用户手机号
+         *
+         * @param param {@link BabyDogePawsGameRequestParam}
+         * @return 请求参数的日志描述
+         */
+        public String describe(BabyDogePawsGameRequestParam param) {
+            return param.user.phoneNumber;
+        }
+
+        /**
+         * 响应结果的日志摘要，用于{@link BabyDogePawsProperties.ApiLogFormat#COMPACT}格式，默认没有摘要
+         *
+         * @param data 反序列化后的响应结果，不为null
+         * @return 响应结果的日志摘要
+         */
+        public String summarize(Object data) {
+            return null;
+        }
+
+        /**
+         * @param <T> 响应body反序列化的目标类型
+         * @return 当前接口的响应处理器
+         */
+        @SuppressWarnings("unchecked")
+        public <T> JsonBodyHandler<T> bodyHandler() {
+            return (JsonBodyHandler<T>) bodyHandler;
+        }
+
         public HttpRequest.Builder builder(BabyDogePawsGameRequestParam param) {
             return HttpRequest.newBuilder()
                     .header("Accept", "application/json, text/plain, */*")
                     .header("sec-fetch-site", "cross-site")
                     .header("Accept-Language", "en-US,en;q=0.9")
-                    .header("Accept-Encoding", "gzip, deflate, br")
+                    .header("Accept-Encoding", ContentEncoding.ACCEPT_ENCODING)
                     .header("sec-fetch-mode", "cors")
                     .header("Origin", "https://babydogeclikerbot.com")
                     .header("User-Agent", param.user.userAgent == null || param.user.userAgent.isBlank() ? DEFAULT_USERAGENT : param.user.userAgent)
@@ -216,4 +380,61 @@ public final class BabyDogePawsApiRequest {
         }
 
     }
+
+    /**
+     * 接口重试策略，所有原因导致的重试共享同一个请求次数预算，一次调用最多重新授权一次
+     *
+     * @param maxAttempts       最多请求次数（包括第一次请求）
+     * @param reauthorize       响应码为401时是否需要重新授权后再重试
+     * @param retryServerErrors 响应码为5xx时是否需要退避后再重试，非幂等的接口不应该重试，因为服务端可能已经处理了请求
+     */
+    public record RetryPolicy(int maxAttempts, boolean reauthorize, boolean retryServerErrors) {
+
+        /**
+         * 不重试
+         */
+        public static final RetryPolicy NONE = new RetryPolicy(1, false, false);
+
+        /**
+         * 授权接口本身不能再重新授权
+         */
+        public static final RetryPolicy NO_REAUTHORIZE = new RetryPolicy(3, false, true);
+
+        /**
+         * 查询类接口
+         */
+        public static final RetryPolicy READ = new RetryPolicy(3, true, true);
+
+        /**
+         * 修改类接口
+         */
+        public static final RetryPolicy WRITE = new RetryPolicy(3, true, false);
+
+        /**
+         * @param statusCode http响应码
+         * @param attempt    当前是第几次请求
+         * @return 是否需要重新授权后再重试
+         */
+        public boolean shouldReauthorize(int statusCode, int attempt) {
+            return reauthorize && statusCode == 401 && attempt < maxAttempts;
+        }
+
+        /**
+         * 重新授权之后剩余的请求使用的重试策略，重新授权后依旧返回401说明不是x-api-key过期的问题，不再重新授权
+         *
+         * @return 不再重新授权的重试策略
+         */
+        public RetryPolicy reauthorized() {
+            return reauthorize ? new RetryPolicy(maxAttempts, false, retryServerErrors) : this;
+        }
+
+        /**
+         * @param statusCode http响应码
+         * @param attempt    当前是第几次请求
+         * @return 是否需要退避后再重试，429表示请求没有被处理，所以总是可以重试
+         */
+        public boolean shouldBackoff(int statusCode, int attempt) {
+            return attempt < maxAttempts && (statusCode == 429 || (retryServerErrors && statusCode >= 500));
+        }
+    }
 }
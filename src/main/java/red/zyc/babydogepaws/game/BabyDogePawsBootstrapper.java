@@ -0,0 +1,168 @@
+/*
+ * Copyright 2024 allurx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package red.zyc.babydogepaws.game;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import red.zyc.babydogepaws.config.BabyDogePawsProperties;
+import red.zyc.babydogepaws.model.persistent.BabyDogePawsUser;
+import red.zyc.babydogepaws.model.request.BabyDogePawsGameRequestParam;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 启动时分批激活所有用户，避免重启后所有用户同一时刻请求授权、卡片等接口<br>
+ * 每个用户在预热窗口内有一个由用户id决定的固定偏移量，到达偏移量后才会被激活（先授权再启动所有定时任务），
+ * 同一时刻正在激活的用户数不超过{@link BabyDogePawsProperties.Bootstrap#maxConcurrentActivations()}
+ *
+ * @author allurx
+ */
+@Component
+public class BabyDogePawsBootstrapper {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BabyDogePawsBootstrapper.class);
+
+    private final BabyDogePawsTask babyDogePawsTask;
+    private final BabyDogePawsProperties.Bootstrap config;
+
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicInteger activated = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private volatile long startNanos;
+    private volatile long finishNanos;
+
+    public BabyDogePawsBootstrapper(BabyDogePawsTask babyDogePawsTask, BabyDogePawsProperties babyDogePawsProperties) {
+        this.babyDogePawsTask = babyDogePawsTask;
+        this.config = babyDogePawsProperties.bootstrap();
+    }
+
+    /**
+     * 在预热窗口内异步激活所有用户
+     *
+     * @param users 需要激活的用户
+     */
+    public void bootstrap(List<BabyDogePawsUser> users) {
+        var warmUpMillis = config.warmUp().toMillis();
+        var activations = users.stream()
+                .map(user -> new Activation(user, offsetMillis(user.id, warmUpMillis)))
+                .sorted(Comparator.comparingLong(Activation::offsetMillis))
+                .toList();
+        total.set(activations.size());
+        activated.set(0);
+        failed.set(0);
+        startNanos = System.nanoTime();
+        finishNanos = 0;
+        LOGGER.info("[开始预热]-{}:{}:{}", activations.size(), config.warmUp(), config.maxConcurrentActivations());
+        Thread.ofVirtual().name("BabyDogePawsBootstrapper").start(() -> ramp(activations));
+    }
+
+    /**
+     * 用户在预热窗口内的偏移量，同一个用户每次启动的偏移量都是相同的，相邻id的用户会被均匀的打散
+     *
+     * @param id           用户id
+     * @param windowMillis 预热窗口
+     * @return 偏移量
+     */
+    static long offsetMillis(int id, long windowMillis) {
+        if (windowMillis <= 0) {
+            return 0;
+        }
+
+        // SplitMix64的混合函数
+        var z = id * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return Long.remainderUnsigned(z ^ (z >>> 31), windowMillis);
+    }
+
+    /**
+     * @return 预热进度
+     */
+    public Stats stats() {
+        var start = startNanos;
+        var finish = finishNanos;
+        return new Stats(total.get(),
+                activated.get(),
+                failed.get(),
+                start == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis((finish == 0 ? System.nanoTime() : finish) - start),
+                config.warmUp().toMillis(),
+                start != 0 && finish != 0);
+    }
+
+    private void ramp(List<Activation> activations) {
+        var semaphore = new Semaphore(Math.max(1, config.maxConcurrentActivations()));
+        var step = Math.max(1, activations.size() / 10);
+        try (var executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("BabyDogePawsActivator-", 0).factory())) {
+            for (Activation activation : activations) {
+                var activateAt = startNanos + TimeUnit.MILLISECONDS.toNanos(activation.offsetMillis());
+                long remaining;
+                while ((remaining = activateAt - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(remaining);
+                }
+                semaphore.acquireUninterruptibly();
+                executor.execute(() -> {
+                    try {
+                        babyDogePawsTask.activate(new BabyDogePawsGameRequestParam(activation.user()));
+                    } catch (Throwable t) {
+                        failed.incrementAndGet();
+                        LOGGER.error("[激活用户失败]-{}", activation.user().phoneNumber, t);
+                    } finally {
+                        semaphore.release();
+                        var count = activated.incrementAndGet();
+                        if (count % step == 0 || count == activations.size()) {
+                            LOGGER.info("[预热进度]-{}/{}:{}", count, activations.size(), Duration.ofNanos(System.nanoTime() - startNanos));
+                        }
+                    }
+                });
+            }
+        }
+        finishNanos = System.nanoTime();
+        LOGGER.info("[预热完成]-{}", stats());
+    }
+
+    /**
+     * @param user         用户
+     * @param offsetMillis 在预热窗口内的偏移量
+     */
+    private record Activation(BabyDogePawsUser user, long offsetMillis) {
+    }
+
+    /**
+     * 预热进度
+     *
+     * @param total         需要激活的用户数
+     * @param activated     已经激活的用户数（包括激活失败的）
+     * @param failed        激活失败的用户数
+     * @param elapsedMillis 预热已经花费的时间
+     * @param warmUpMillis  预热窗口
+     * @param finished      预热是否已经完成
+     */
+    public record Stats(int total,
+                        int activated,
+                        int failed,
+                        long elapsedMillis,
+                        long warmUpMillis,
+                        boolean finished) {
+    }
+}
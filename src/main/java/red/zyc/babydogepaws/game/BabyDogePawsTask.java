@@ -4,28 +4,31 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import red.zyc.babydogepaws.config.BabyDogePawsProperties;
-import red.zyc.babydogepaws.dao.CardMapper;
-import red.zyc.babydogepaws.dao.MiningInfoMapper;
+import red.zyc.babydogepaws.dao.CardUpgradeInfoTracker;
+import red.zyc.babydogepaws.dao.MiningInfoWriter;
+import red.zyc.babydogepaws.dao.TaskCheckpointStore;
+import red.zyc.babydogepaws.jfr.TaskCycleEvent;
+import red.zyc.babydogepaws.metrics.BabyDogePawsMetrics;
 import red.zyc.babydogepaws.model.persistent.BabyDogePawsUser;
 import red.zyc.babydogepaws.model.persistent.Card;
+import red.zyc.babydogepaws.model.persistent.MiningInfo;
+import red.zyc.babydogepaws.model.persistent.TaskCheckpoint;
 import red.zyc.babydogepaws.model.request.BabyDogePawsGameRequestParam;
 import red.zyc.babydogepaws.model.request.Mine;
 import red.zyc.babydogepaws.model.request.ResolveChannel;
 import red.zyc.babydogepaws.model.request.UpgradeCard;
-import red.zyc.babydogepaws.model.response.Channel;
+import red.zyc.babydogepaws.model.response.BoostsInfo;
+import red.zyc.babydogepaws.model.response.CardsSnapshot;
+import red.zyc.babydogepaws.model.response.ChannelsInfo;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
-
-import static red.zyc.kit.json.JsonOperator.JACKSON_OPERATOR;
+import java.util.function.BooleanSupplier;
 
 
 /**
@@ -35,53 +38,176 @@ import static red.zyc.kit.json.JsonOperator.JACKSON_OPERATOR;
 public class BabyDogePawsTask {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(BabyDogePawsTask.class);
-    public static volatile int mineCountMin = 50;
-    public static volatile int mineCountMax = 201;
 
-    private static final ScheduledThreadPoolExecutor AUTHENTICATOR = new ScheduledThreadPoolExecutor(0, Thread.ofVirtual().name("Authenticator-", 0).factory());
-    private static final ScheduledThreadPoolExecutor MINER = new ScheduledThreadPoolExecutor(0, Thread.ofVirtual().name("Miner-", 0).factory());
-    private static final ScheduledThreadPoolExecutor CARD_UP_GRADER = new ScheduledThreadPoolExecutor(0, Thread.ofVirtual().name("CardUpGrader-", 0).factory());
-    private static final ScheduledThreadPoolExecutor ONE_TIME_TASK_HITTER = new ScheduledThreadPoolExecutor(0, Thread.ofVirtual().name("OneTimeMissionHitter-", 0).factory());
+    /**
+     * 单次挖矿请求的最大次数
+     */
+    public static volatile int mineCountMax = 1000;
+
     private final BabyDogePawsApi babyDogePawsApi;
-    private final CardMapper cardMapper;
-    private final MiningInfoMapper miningInfoMapper;
+    private final CardUpgradeInfoTracker cardUpgradeInfoTracker;
+    private final MiningInfoWriter miningInfoWriter;
     private final BabyDogePawsProperties babyDogePawsProperties;
+    private final BabyDogePawsApiCircuitBreaker circuitBreaker;
+    private final TaskCheckpointStore taskCheckpointStore;
+    private final TimingWheel timingWheel;
+    private final TaskRegistry taskRegistry;
+    private final BabyDogePawsMetrics metrics;
 
 
-    public BabyDogePawsTask(BabyDogePawsApi babyDogePawsApi, CardMapper cardMapper, MiningInfoMapper miningInfoMapper, BabyDogePawsProperties babyDogePawsProperties) {
+    public BabyDogePawsTask(BabyDogePawsApi babyDogePawsApi, CardUpgradeInfoTracker cardUpgradeInfoTracker, MiningInfoWriter miningInfoWriter,
+                            BabyDogePawsProperties babyDogePawsProperties, BabyDogePawsApiCircuitBreaker circuitBreaker,
+                            TaskCheckpointStore taskCheckpointStore, TimingWheel timingWheel, TaskRegistry taskRegistry,
+                            BabyDogePawsMetrics metrics) {
         this.babyDogePawsApi = babyDogePawsApi;
-        this.cardMapper = cardMapper;
-        this.miningInfoMapper = miningInfoMapper;
+        this.cardUpgradeInfoTracker = cardUpgradeInfoTracker;
+        this.miningInfoWriter = miningInfoWriter;
         this.babyDogePawsProperties = babyDogePawsProperties;
+        this.circuitBreaker = circuitBreaker;
+        this.taskCheckpointStore = taskCheckpointStore;
+        this.timingWheel = timingWheel;
+        this.taskRegistry = taskRegistry;
+        this.metrics = metrics;
+    }
+
+    /**
+     * 游戏服务器不可用时（熔断器打开）直接跳过本次任务，由熔断器的探测请求决定何时恢复
+     *
+     * @param param {@link BabyDogePawsGameRequestParam}
+     * @param task  任务名称
+     * @return 是否需要跳过本次任务
+     */
+    private boolean skip(BabyDogePawsGameRequestParam param, String task) {
+        if (circuitBreaker.allowsTraffic()) {
+            return false;
+        }
+        LOGGER.debug("[游戏服务器不可用，跳过task]-{}:{}", param.user.phoneNumber, task);
+        return true;
     }
 
     /**
-     * 启动所有定时任务
+     * 启动所有定时任务，每个任务第一次执行的时间由{@link TaskCheckpointStore 检查点}决定，
+     * 所有任务都由{@link TimingWheel}调度，属于注册时用户的{@link UserRuntime#handle() 取消句柄}，并且注册到{@link TaskRegistry}中。
+     * 每次调用都会{@link UserRuntime#renewTasks() 启动新一代任务}，所以已经被取消的用户也能重新启动
      *
      * @param param {@link BabyDogePawsGameRequestParam}
      */
     public void schedule(BabyDogePawsGameRequestParam param) {
+        taskRegistry.runtime(param.user).renewTasks();
         scheduleAuthorize(param);
         schedulePickDailyBonus(param);
         schedulePickPromo(param);
-        scheduleMine(param);
+        scheduleMine(param, taskRegistry.register(param.user, "Mine"), null, initialDelayMillis(param, "Mine"));
         scheduleUpgradeCard(param);
         scheduleResolveChannel(param);
     }
 
     /**
-     * 每隔1小时授权一次，确保游戏处于活跃状态，以便能够持续产生利润
+     * 先同步授权一次再启动所有定时任务，这样其它任务第一次执行时就已经拿到了新的x-api-key，
+     * 由{@link BabyDogePawsBootstrapper}在预热时调用。检查点显示最近已经授权过的话就不需要再授权了，
+     * 授权失败时依然会启动所有定时任务
      *
      * @param param {@link BabyDogePawsGameRequestParam}
      */
-    private void scheduleAuthorize(BabyDogePawsGameRequestParam param) {
-        param.user.tasks.put("Authorize", AUTHENTICATOR.scheduleWithFixedDelay(() -> {
+    public void activate(BabyDogePawsGameRequestParam param) {
+        try {
+            if (initialDelayMillis(param, "Authorize") == 0) {
+                var authorized = babyDogePawsApi.authorize(param).join().isPresent();
+                checkpoint(param, "Authorize", TimeUnit.HOURS.toMillis(1), authorized ? TaskCheckpoint.Outcome.SUCCESS : TaskCheckpoint.Outcome.FAILURE);
+            }
+        } finally {
+            schedule(param);
+        }
+    }
+
+    /**
+     * 根据检查点计算任务第一次执行的延迟时间，只有最近一次执行成功并且还没有到下一次执行时间的任务才需要等待，
+     * 执行失败或者被跳过的任务立即执行
+     *
+     * @param param {@link BabyDogePawsGameRequestParam}
+     * @param task  任务名称
+     * @return 延迟时间（毫秒）
+     */
+    private long initialDelayMillis(BabyDogePawsGameRequestParam param, String task) {
+        return taskCheckpointStore.get(param.user.id, task)
+                .filter(checkpoint -> checkpoint.lastOutcome == TaskCheckpoint.Outcome.SUCCESS && checkpoint.nextDueTime != null)
+                .map(checkpoint -> Math.max(0L, Duration.between(LocalDateTime.now(), checkpoint.nextDueTime).toMillis()))
+                .orElse(0L);
+    }
+
+    /**
+     * @param param       {@link BabyDogePawsGameRequestParam}
+     * @param task        任务名称
+     * @param delayMillis 距离下一次执行的时间（毫秒）
+     * @param outcome     本次执行的结果
+     */
+    private void checkpoint(BabyDogePawsGameRequestParam param, String task, long delayMillis, TaskCheckpoint.Outcome outcome) {
+        taskCheckpointStore.checkpoint(param.user.id, task, LocalDateTime.now().plus(Duration.ofMillis(delayMillis)), outcome);
+    }
+
+    /**
+     * 任务执行结束后提交{@link TaskCycleEvent}、更新任务状态并记录检查点
+     *
+     * @param param         {@link BabyDogePawsGameRequestParam}
+     * @param task          {@link UserTask}
+     * @param event         {@link TaskCycleEvent}
+     * @param delayMillis   距离下一次执行的时间（毫秒）
+     * @param outcome       本次执行的结果
+     * @param durationNanos 本次执行的耗时
+     * @param error         本次执行发生的异常
+     */
+    private void finish(BabyDogePawsGameRequestParam param, UserTask task, TaskCycleEvent event, long delayMillis, TaskCheckpoint.Outcome outcome, long durationNanos, Throwable error) {
+        event.complete(outcome);
+        task.finished(durationNanos, error, outcome != TaskCheckpoint.Outcome.SUCCESS, TimeUnit.MILLISECONDS.toNanos(delayMillis));
+        checkpoint(param, task.name(), delayMillis, outcome);
+    }
+
+    /**
+     * 以固定延迟周期性的执行任务，任务会注册到{@link TaskRegistry}中，每次执行后更新任务状态并记录检查点，
+     * 任务发生异常或者返回false都视为执行失败
+     *
+     * @param param       {@link BabyDogePawsGameRequestParam}
+     * @param task        任务名称
+     * @param description 任务描述，用于日志
+     * @param delay       两次执行之间的延迟
+     * @param command     任务，返回本次执行是否成功
+     */
+    private void scheduleWithFixedDelay(BabyDogePawsGameRequestParam param,
+                                        String task,
+                                        String description,
+                                        Duration delay,
+                                        BooleanSupplier command) {
+        var userTask = taskRegistry.register(param.user, task);
+        var initialDelay = initialDelayMillis(param, task);
+        userTask.scheduled(timingWheel.scheduleWithFixedDelay(task, userTask.handle(), initialDelay, delay.toMillis(), TimeUnit.MILLISECONDS, () -> {
+            var event = TaskCycleEvent.start(param.user.phoneNumber, task);
+            if (skip(param, task)) {
+                finish(param, userTask, event, delay.toMillis(), TaskCheckpoint.Outcome.SKIPPED, 0L, null);
+                return;
+            }
+            userTask.started();
+            var start = System.nanoTime();
+            Throwable error = null;
+            var succeeded = false;
             try {
-                babyDogePawsApi.authorize(param);
+                succeeded = command.getAsBoolean();
             } catch (Throwable t) {
-                LOGGER.error("[执行授权task发生异常]-{}", param.user.phoneNumber, t);
+                error = t;
+                LOGGER.error("[执行{}task发生异常]-{}", description, param.user.phoneNumber, t);
+            } finally {
+                finish(param, userTask, event, delay.toMillis(), succeeded ? TaskCheckpoint.Outcome.SUCCESS : TaskCheckpoint.Outcome.FAILURE, System.nanoTime() - start, error);
             }
-        }, 0L, 1L, TimeUnit.HOURS));
+        }), TimeUnit.MILLISECONDS.toNanos(initialDelay));
+    }
+
+    /**
+     * 每隔1小时授权一次，确保游戏处于活跃状态，以便能够持续产生利润
+     *
+     * @param param {@link BabyDogePawsGameRequestParam}
+     */
+    private void scheduleAuthorize(BabyDogePawsGameRequestParam param) {
+        scheduleWithFixedDelay(param, "Authorize", "授权", Duration.ofHours(1L),
+                () -> babyDogePawsApi.authorize(param).join().isPresent());
     }
 
     /**
@@ -90,13 +216,8 @@ public class BabyDogePawsTask {
      * @param param {@link BabyDogePawsGameRequestParam}
      */
     private void schedulePickDailyBonus(BabyDogePawsGameRequestParam param) {
-        param.user.tasks.put("PickDailyBonus", ONE_TIME_TASK_HITTER.scheduleWithFixedDelay(() -> {
-            try {
-                babyDogePawsApi.pickDailyBonus(param);
-            } catch (Throwable t) {
-                LOGGER.error("[执行采集每日奖励task发生异常]-{}", param.user.phoneNumber, t);
-            }
-        }, 0L, 1L, TimeUnit.HOURS));
+        scheduleWithFixedDelay(param, "PickDailyBonus", "采集每日奖励", Duration.ofHours(1L),
+                () -> babyDogePawsApi.pickDailyBonus(param).join().isPresent());
     }
 
     /**
@@ -105,78 +226,107 @@ public class BabyDogePawsTask {
      * @param param {@link BabyDogePawsGameRequestParam}
      */
     private void schedulePickPromo(BabyDogePawsGameRequestParam param) {
-        param.user.tasks.put("PickPromo", ONE_TIME_TASK_HITTER.scheduleWithFixedDelay(() -> {
-            try {
-                babyDogePawsApi.pickPromo(param);
-            } catch (Throwable t) {
-                LOGGER.error("[执行采集促销奖励task发生异常]-{}", param.user.phoneNumber, t);
-            }
-        }, 0L, 1L, TimeUnit.HOURS));
+        scheduleWithFixedDelay(param, "PickPromo", "采集促销奖励", Duration.ofHours(1L),
+                () -> babyDogePawsApi.pickPromo(param).join().isPresent());
     }
 
     /**
-     * 定时挖矿
+     * 定时挖矿<br>
+     * 根据{@link EnergyModel}计算挖矿次数，使每次挖矿请求刚好消耗完当前所有能量，
+     * 然后在能量刚好充满的时候再次挖矿，这样既不会浪费能量恢复，也不会产生多余的挖矿请求
      *
-     * @param param {@link BabyDogePawsGameRequestParam}
+     * @param param       {@link BabyDogePawsGameRequestParam}
+     * @param task        {@link UserTask}，每次都使用它的{@link UserTask#handle() 取消句柄}，所以上一代的挖矿任务不会被放入新一代中
+     * @param energyModel 上一次挖矿后的能量模型，为null时需要先从{@link UserState}或者getMe获取
+     * @param delayMillis 距离下一次挖矿的时间（毫秒）
      */
-    private void scheduleMine(BabyDogePawsGameRequestParam param) {
-        int timeToFullyCharge = 0;
+    private void scheduleMine(BabyDogePawsGameRequestParam param, UserTask task, EnergyModel energyModel, long delayMillis) {
+        task.scheduled(timingWheel.schedule("Mine", task.handle(), delayMillis, TimeUnit.MILLISECONDS, () -> mine(param, task, energyModel)),
+                TimeUnit.MILLISECONDS.toNanos(delayMillis));
+    }
+
+    private void mine(BabyDogePawsGameRequestParam param, UserTask task, EnergyModel energyModel) {
+        task.started();
+        var event = TaskCycleEvent.start(param.user.phoneNumber, task.name());
+        var start = System.nanoTime();
+        Throwable error = null;
+        var model = energyModel;
+
+        // 本次执行是否因为熔断被跳过，已经挖过矿之后才被熔断的不算跳过，依旧按照能量模型调度下一次挖矿
+        var skipped = false;
+        var mined = false;
         try {
-            int remainingEnergy;
-            int maxEnergy;
-            int earnPerTap;
-            int count;
-            int mined;
-            String draw;
-            while (true) {
-
-                // 挖矿请求
-                count = ThreadLocalRandom.current().nextInt(mineCountMin, mineCountMax);
-                var miningInfo = babyDogePawsApi.mine(new Mine(param.user, count));
-                if (miningInfo.isEmpty()) break;
+            if (model == null) {
+                if (skip(param, "Mine")) {
+                    skipped = true;
+                } else {
+                    model = babyDogePawsApi.getState(param).join().map(UserState::energy).orElse(null);
+
+                    // 授权接口更新的快照中没有能量信息
+                    if (model == null) {
+                        model = babyDogePawsApi.getMe(param).join().map(user -> EnergyModel.of(user, System.nanoTime())).orElse(null);
+                    }
+                }
+            }
+            while (model != null) {
+                if (skip(param, "Mine")) {
+                    skipped = !mined;
+                    break;
+                }
 
-                // 挖矿请求返回的用户信息
-                @SuppressWarnings("unchecked")
-                var userInfo = (Map<String, Object>) miningInfo.get("user");
-                remainingEnergy = (int) userInfo.getOrDefault("energy", 0);
-                maxEnergy = (int) userInfo.getOrDefault("max_energy", 0);
-                earnPerTap = (int) userInfo.getOrDefault("earn_per_tap", 0);
+                // 挖矿请求，单次挖矿次数不超过mineCountMax
+                var count = Math.min(model.tapsAt(System.nanoTime()), mineCountMax);
 
-                // 挖矿请求返回的挖矿信息
-                @SuppressWarnings("unchecked")
-                var mineValue = (Map<String, Object>) miningInfo.get("mine");
-                mined = (int) mineValue.getOrDefault("mined", 0);
+                // 能量还没有恢复到足够点击一次，等待能量充满
+                if (count <= 0) break;
 
-                // 挖矿请求返回的奖励信息
-                var drawValue = miningInfo.get("draw");
-                draw = JACKSON_OPERATOR.toJsonString(drawValue == null ? Map.of() : drawValue);
+                var mineResult = babyDogePawsApi.mine(new Mine(param.user, count)).join().orElse(null);
 
-                // 能量充满所需时间（秒）
-                timeToFullyCharge = Math.ceilDiv(maxEnergy, 3);
+                // 请求失败或者响应中没有用户信息时，下一次执行重新获取用户状态
+                model = EnergyModel.of(mineResult, System.nanoTime());
+                if (model == null) break;
 
-                // 保存本次挖矿信息
-                miningInfoMapper.saveMiningInfo(param.user.id, earnPerTap, count, mined, remainingEnergy, draw);
+                // 挖矿请求返回的用户信息
+                var userInfo = mineResult.user();
+
+                // 保存本次挖矿信息，由写入器异步批量写入数据库
+                var amount = mineResult.mine() == null ? 0 : mineResult.mine().mined();
+                miningInfoWriter.write(new MiningInfo(
+                        param.user.id,
+                        userInfo.earnPerTap(),
+                        count,
+                        amount,
+                        userInfo.energy(),
+                        mineResult.drawJson()));
+                metrics.mined(param.user, amount);
+                mined = true;
+
+                // 只有受mineCountMax限制没有用完的能量才继续挖，请求期间恢复的少量能量留到能量充满时再挖
+                if (count == mineCountMax && model.tapsAt(model.observedAtNanos()) > 0) continue;
 
                 // 能量用完后，如果有全能量Boosts可用的话就使用
-                if (remainingEnergy == 0) {
-                    var fullEnergyCountBoosts = (int) babyDogePawsApi.getBoosts(param).getOrDefault("current_full_energy_count", -1);
-                    if (fullEnergyCountBoosts > 0) {
-                        // 下一次循环能量应该充满了
-                        babyDogePawsApi.useFullEnergyBoosts(param);
-                    } else {
-                        break;
-                    }
+                var fullEnergyCountBoosts = babyDogePawsApi.getBoosts(param).join().map(BoostsInfo::currentFullEnergyCount).orElse(-1);
+                if (fullEnergyCountBoosts > 0 && !babyDogePawsApi.useFullEnergyBoosts(param).join().isEmpty()) {
+                    // 下一次循环能量应该充满了
+                    model = model.refill(System.nanoTime());
+                } else {
+                    break;
                 }
             }
         } catch (Throwable t) {
+            model = null;
+            error = t;
             LOGGER.error("[执行挖矿task发生异常]-{}", param.user.phoneNumber, t);
         } finally {
-            param.user.tasks.put("Mine",
-                    MINER.schedule(() -> scheduleMine(param),
-                            // 游戏服务器宕机的时候，这个值为0，此时设置一个固定延迟调度直到服务器恢复
-                            timeToFullyCharge == 0 ? 60 : timeToFullyCharge,
-                            TimeUnit.SECONDS)
-            );
+
+            // 游戏服务器宕机的时候无法得到能量模型或者挖矿被熔断跳过了，此时设置一个固定延迟调度直到服务器恢复
+            var delay = model == null || skipped ? TimeUnit.SECONDS.toMillis(60) : model.untilFull(System.nanoTime()).toMillis();
+            finish(param, task, event, delay, skipped ? TaskCheckpoint.Outcome.SKIPPED : model == null ? TaskCheckpoint.Outcome.FAILURE : TaskCheckpoint.Outcome.SUCCESS, System.nanoTime() - start, error);
+
+            // 执行期间任务被取消或者被新一代任务替换了就不再调度
+            if (!task.isCancelled()) {
+                scheduleMine(param, task, model, delay);
+            }
         }
     }
 
@@ -186,15 +336,15 @@ public class BabyDogePawsTask {
      * @param param {@link BabyDogePawsGameRequestParam}
      */
     private void scheduleUpgradeCard(BabyDogePawsGameRequestParam param) {
-        param.user.tasks.put("UpgradeCard", CARD_UP_GRADER.scheduleWithFixedDelay(() -> {
-            try {
-                var balance = new BigDecimal(babyDogePawsApi.getMe(param).getOrDefault("balance", BigDecimal.ZERO).toString());
-                var cards = babyDogePawsApi.listCards(param);
-                upgradeCard(param.user, balance, cards);
-            } catch (Throwable t) {
-                LOGGER.error("[执行升级卡片task发生异常]-{}", param.user.phoneNumber, t);
+        scheduleWithFixedDelay(param, "UpgradeCard", "升级卡片", Duration.ofMinutes(3L), () -> {
+            var balance = babyDogePawsApi.getState(param).join().map(UserState::balance);
+            var cards = babyDogePawsApi.listCards(param).join().map(CardsSnapshot::cards);
+            if (balance.isEmpty() || cards.isEmpty()) {
+                return false;
             }
-        }, 0L, 3L, TimeUnit.MINUTES));
+            upgradeCard(param.user, balance.get(), cards.get());
+            return true;
+        });
     }
 
     /**
@@ -203,89 +353,60 @@ public class BabyDogePawsTask {
      * @param param {@link BabyDogePawsGameRequestParam}
      */
     private void scheduleResolveChannel(BabyDogePawsGameRequestParam param) {
-        ONE_TIME_TASK_HITTER.scheduleWithFixedDelay(() -> {
-            try {
-                @SuppressWarnings("unchecked")
-                var channels = ((List<Map<String, Object>>) babyDogePawsApi.listChannels(param).getOrDefault("channels", new ArrayList<>()))
-                        .stream().map(channel -> new Channel(
-                                Long.parseLong(channel.get("id").toString()),
-                                Long.parseLong(channel.get("reward").toString()),
-                                (boolean) channel.get("is_resolved"),
-                                (boolean) channel.get("is_reward_taken"),
-                                (boolean) channel.get("is_premium")
-                        )).toList();
-
-                // 解决任务
-                channels.stream()
-                        .filter(channel -> !channel.isPremium() && !channel.isResolved())
-                        .forEach(channel -> babyDogePawsApi.resolveChannel(new ResolveChannel(param.user, channel)));
-
-                // 采集已解决并且没有拿过奖励的任务，任务解决后一般是1个小时可以采集奖励
-                channels.stream()
-                        .filter(channel -> channel.isResolved() && !channel.isRewardTaken())
-                        .forEach(channel -> babyDogePawsApi.pickChannel(new ResolveChannel(param.user, channel)));
-            } catch (Throwable t) {
-                LOGGER.error("[执行解决任务task发生异常]-{}", param.user.phoneNumber, t);
+        scheduleWithFixedDelay(param, "ResolveChannel", "解决任务", Duration.ofMinutes(90L), () -> {
+            var channels = babyDogePawsApi.listChannels(param).join().map(ChannelsInfo::channels);
+            if (channels.isEmpty()) {
+                return false;
             }
-        }, 0L, 90L, TimeUnit.MINUTES);
+
+            // 解决任务，其中一个失败不影响其它任务
+            var resolved = channels.get().stream()
+                    .filter(channel -> !channel.isPremium() && !channel.isResolved())
+                    .map(channel -> babyDogePawsApi.resolveChannel(new ResolveChannel(param.user, channel)).join().isPresent())
+                    .reduce(true, Boolean::logicalAnd);
+
+            // 采集已解决并且没有拿过奖励的任务，任务解决后一般是1个小时可以采集奖励
+            var picked = channels.get().stream()
+                    .filter(channel -> channel.isResolved() && !channel.isRewardTaken())
+                    .map(channel -> babyDogePawsApi.pickChannel(new ResolveChannel(param.user, channel)).join().isPresent())
+                    .reduce(true, Boolean::logicalAnd);
+            return resolved && picked;
+        });
     }
 
     /**
-     * 升级卡片
+     * 按照{@link CardUpgradePlanner}的计划依次升级卡片，直到余额不够升级价格最低的卡片
      *
      * @param balance 当前余额
-     * @param cards   卡片列表
+     * @param cards   卡片分类列表
      */
-    @SuppressWarnings("unchecked")
-    private void upgradeCard(BabyDogePawsUser user, BigDecimal balance, List<Map<String, Object>> cards) {
-        cards.stream()
-                .flatMap(o -> ((List<Map<String, Object>>) o.get("cards")).stream().peek(card -> card.put("category_name", o.get("name"))))
-                .map(cardMap -> new UpgradeCard(
-                        user,
-                        balance,
-                        JACKSON_OPERATOR.copyProperties(cardMap, Card.class),
-                        JACKSON_OPERATOR.copyProperties(cardMap, UpgradeCard.UpgradeInfo.class),
-                        (Boolean) cardMap.get("is_available")))
-
-                // 用新号来追踪卡片升级信息
-                .peek(upgradeCard -> {
-                    if (babyDogePawsProperties.cardUpgradeInfoTracker().contains(user.phoneNumber)) {
-                        cardMapper.saveOrUpdateCard(upgradeCard.card, upgradeCard.upgradeInfo);
-                    }
-                })
-
-                // 注意：available变成true后，之前存在的requirement就会变成null
-                .filter(upgradeCard -> upgradeCard.available)
-
-                // 先按照价格升序，再按照花费升序，
-                // 尽快增加pph（升级pph优先）
-                .min(Comparator.<UpgradeCard, BigDecimal>comparing(upgradeCard -> upgradeCard.upgradeInfo.cost.divide(upgradeCard.upgradeInfo.profit, 2, RoundingMode.HALF_UP))
-                        .thenComparing(upgradeCard -> upgradeCard.upgradeInfo.cost))
-                .ifPresent(upgradeCard -> {
-                    if (canUpgradeCard(upgradeCard, Optional.ofNullable(user.maximumCardUpgradePrice).orElse(BigDecimal.valueOf(500)))) {
-                        var map = babyDogePawsApi.upgradeCard(upgradeCard);
-                        var latestBalance = new BigDecimal(map.getOrDefault("balance", BigDecimal.ZERO).toString());
-                        var latestCards = (List<Map<String, Object>>) map.getOrDefault("cards", new ArrayList<>());
-                        upgradeCard(user, latestBalance, latestCards);
-                    }
-                });
-    }
-
-    private boolean canUpgradeCard(UpgradeCard upgradeCard, BigDecimal maximumCardUpgradePrice) {
-
-        UpgradeCard.UpgradeInfo upgradeInfo = upgradeCard.upgradeInfo;
-
-        // 同时满足所有条件才能升级
-        return
-                // 余额比卡片升级所需的花费多
-                upgradeCard.balance.compareTo(upgradeInfo.cost) >= 0
-
-                        // 卡片升级的价格满足一定条件
-                        && upgradeInfo.cost.divide(upgradeInfo.profit, 2, RoundingMode.HALF_UP).compareTo(maximumCardUpgradePrice) <= 0;
+    private void upgradeCard(BabyDogePawsUser user, BigDecimal balance, List<CardsSnapshot.CardCategory> cards) {
 
+        // 用新号来追踪卡片升级信息
+        var tracked = cardUpgradeInfoTracker.isTracked(user);
+        if (tracked) {
+            cardUpgradeInfoTracker.track(cards);
+        }
 
-        // 卡片升级所需的花费不超过设置的阈值
-        // && upgradeInfo.cost.compareTo(BigDecimal.valueOf(10000000)) <= 0;
+        var upgraded = new ArrayList<CardsSnapshot.CardCategory>();
+        try {
+            var planner = new CardUpgradePlanner(balance, cards, Optional.ofNullable(user.maximumCardUpgradePrice).orElse(BigDecimal.valueOf(500)));
+            Optional<CardEconomics> next;
+            while ((next = planner.next()).isPresent()) {
+                var candidate = next.get();
+                var upgradeCard = new UpgradeCard(user, planner.balance(), Card.of(candidate.categoryName(), candidate.card()), UpgradeCard.UpgradeInfo.of(candidate.card()), true);
+                var snapshot = babyDogePawsApi.upgradeCard(upgradeCard).join();
+                if (snapshot.isEmpty()) break;
+                metrics.cardUpgraded(user, candidate.card().cost(), candidate.card().profit());
+                planner.onUpgraded(candidate, snapshot.get()).ifPresent(cardInfo -> {
+                    if (tracked) upgraded.add(new CardsSnapshot.CardCategory(candidate.categoryName(), List.of(cardInfo)));
+                });
+            }
+        } finally {
+            if (!upgraded.isEmpty()) {
+                cardUpgradeInfoTracker.track(upgraded);
+            }
+        }
     }
 
 }
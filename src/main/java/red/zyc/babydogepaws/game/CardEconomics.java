@@ -0,0 +1,136 @@
+/*
+ * Copyright 2024 allurx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package red.zyc.babydogepaws.game;
+
+import red.zyc.babydogepaws.model.response.CardsSnapshot;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 卡片升级的经济信息，花费、利润以及价格（花费/利润）都以保留{@link #SCALE}位小数的定点数long保存<br>
+ * 价格在构造时计算一次，与{@code cost.divide(profit, 2, RoundingMode.HALF_UP)}的结果完全相同，
+ * 排序和比较时不再需要BigDecimal的除法以及对象分配。<br>
+ * 游戏返回的花费和利润都是整数，超过{@link #SCALE}位小数或者超出long范围的卡片无法精确表示，不会参与排序
+ *
+ * @param categoryName 分类名称
+ * @param card         卡片信息
+ * @param cost         升级花费，定点数
+ * @param profit       升级后增加的每小时利润，定点数
+ * @param price        价格，即每增加1点每小时利润需要的花费，定点数
+ * @author allurx
+ */
+public record CardEconomics(String categoryName, CardsSnapshot.CardInfo card, long cost, long profit, long price) {
+
+    /**
+     * 定点数保留的小数位数
+     */
+    public static final int SCALE = 2;
+
+    /**
+     * 先按照价格升序，再按照花费升序
+     */
+    public static final Comparator<CardEconomics> ORDER = (o1, o2) -> o1.price != o2.price
+            ? Long.compare(o1.price, o2.price)
+            : Long.compare(o1.cost, o2.cost);
+
+    private static final long ONE = (long) Math.pow(10, SCALE);
+
+    /**
+     * @param categoryName 分类名称
+     * @param card         卡片信息
+     * @return 可以升级的卡片的经济信息，卡片不可升级、利润不为正数或者无法用定点数精确表示时为空
+     */
+    public static Optional<CardEconomics> of(String categoryName, CardsSnapshot.CardInfo card) {
+
+        // 注意：available变成true后，之前存在的requirement就会变成null
+        if (!card.available() || card.cost() == null || card.profit() == null || card.profit().signum() <= 0 || card.cost().signum() < 0) {
+            return Optional.empty();
+        }
+        try {
+            var cost = card.cost().setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+            var profit = card.profit().setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+            return Optional.of(new CardEconomics(categoryName, card, cost, profit, price(cost, profit)));
+        } catch (ArithmeticException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 对所有可以升级的卡片排序
+     *
+     * @param categories 卡片分类列表
+     * @return 按照{@link #ORDER}排列的卡片
+     */
+    public static List<CardEconomics> rank(List<CardsSnapshot.CardCategory> categories) {
+        var ranked = new ArrayList<CardEconomics>();
+        categories.forEach(category -> category.cards().forEach(card -> of(category.name(), card).ifPresent(ranked::add)));
+        ranked.sort(ORDER);
+        return ranked;
+    }
+
+    /**
+     * 将BigDecimal向下取整为定点数，用于余额以及价格上限这类只需要和定点数比较大小的值。
+     * 由于定点数都是整数，{@code value >= fixed}等价于{@code floor(value) >= fixed}
+     *
+     * @param value 数值
+     * @return 定点数，超出long范围时取边界值
+     */
+    public static long floor(BigDecimal value) {
+        var unscaled = value.setScale(SCALE, RoundingMode.FLOOR).unscaledValue();
+        return unscaled.bitLength() < Long.SIZE ? unscaled.longValue() : unscaled.signum() > 0 ? Long.MAX_VALUE : Long.MIN_VALUE;
+    }
+
+    /**
+     * @param fixed 定点数
+     * @return 对应的BigDecimal
+     */
+    public static BigDecimal toBigDecimal(long fixed) {
+        return BigDecimal.valueOf(fixed, SCALE);
+    }
+
+    /**
+     * 四舍五入计算价格，cost和profit的定点数倍数相同，所以直接相除即可得到价格的真实值，再乘以{@link #ONE}得到定点数
+     *
+     * @param cost   花费，非负数
+     * @param profit 利润，正数
+     * @return 价格的定点数
+     */
+    static long price(long cost, long profit) {
+        long dividend;
+        try {
+            dividend = Math.multiplyExact(cost, ONE);
+        } catch (ArithmeticException e) {
+            return BigDecimal.valueOf(cost).divide(BigDecimal.valueOf(profit), SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        }
+        var quotient = dividend / profit;
+        var remainder = dividend % profit;
+
+        // 余数不小于除数的一半时进位，写成减法避免溢出
+        return remainder >= profit - remainder ? quotient + 1 : quotient;
+    }
+
+    /**
+     * @return 价格的BigDecimal形式，与{@code cost.divide(profit, 2, RoundingMode.HALF_UP)}相同
+     */
+    public BigDecimal priceDecimal() {
+        return toBigDecimal(price);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2024 allurx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package red.zyc.babydogepaws.game;
+
+import red.zyc.babydogepaws.model.response.CardsSnapshot;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+
+/**
+ * 卡片升级计划器，不涉及任何I/O<br>
+ * 基于一次卡片列表快照以及余额建立一个按照{@link CardEconomics#ORDER}（价格升序、花费升序）排列的优先队列，
+ * 每次升级成功后只用升级响应中被升级的那张卡片更新队列，而不是重新扫描所有卡片。<br>
+ * 价格最低的卡片余额不够时就停止升级，攒钱升级性价比最高的卡片（升级pph优先）。<br>
+ * 所有比较都基于{@link CardEconomics}中的定点数，余额和价格上限在进入计划器时向下取整为定点数
+ *
+ * @author allurx
+ */
+public final class CardUpgradePlanner {
+
+    private final long maximumPrice;
+    private final PriorityQueue<CardEconomics> queue = new PriorityQueue<>(CardEconomics.ORDER);
+
+    /**
+     * 每张卡片当前有效的候选项，队列中不在这里的候选项都是过期的
+     */
+    private final Map<Integer, CardEconomics> candidates = new HashMap<>();
+    private BigDecimal balance;
+    private long fixedBalance;
+
+    /**
+     * @param balance      当前余额
+     * @param categories   卡片列表快照
+     * @param maximumPrice 允许升级的最高价格
+     */
+    public CardUpgradePlanner(BigDecimal balance, List<CardsSnapshot.CardCategory> categories, BigDecimal maximumPrice) {
+        updateBalance(balance);
+        this.maximumPrice = CardEconomics.floor(maximumPrice);
+        categories.forEach(category -> category.cards().forEach(card -> offer(category.name(), card)));
+    }
+
+    /**
+     * @return 当前余额
+     */
+    public BigDecimal balance() {
+        return balance;
+    }
+
+    /**
+     * 获取下一张需要升级的卡片
+     *
+     * @return 价格最低的卡片，余额不够或者价格超过{@link #maximumPrice}时为空
+     */
+    public Optional<CardEconomics> next() {
+        var top = peek();
+        return top != null && canUpgrade(top, fixedBalance) ? Optional.of(top) : Optional.empty();
+    }
+
+    /**
+     * 卡片升级成功后，用升级响应中该卡片的新等级信息更新计划
+     *
+     * @param upgraded 升级的卡片
+     * @param response 升级响应
+     * @return 升级后的卡片信息
+     */
+    public Optional<CardsSnapshot.CardInfo> onUpgraded(CardEconomics upgraded, CardsSnapshot response) {
+        updateBalance(response.balance());
+        candidates.remove(upgraded.card().id());
+        var card = response.cards().stream()
+                .filter(category -> Objects.equals(category.name(), upgraded.categoryName()))
+                .flatMap(category -> category.cards().stream())
+                .filter(cardInfo -> Objects.equals(cardInfo.id(), upgraded.card().id()))
+                .findFirst();
+        card.ifPresent(cardInfo -> offer(upgraded.categoryName(), cardInfo));
+        return card;
+    }
+
+    /**
+     * 按照当前余额推演整个升级计划，由于升级后卡片的新等级信息只能从升级响应中获取，
+     * 所以推演时每张卡片最多只会出现一次
+     *
+     * @return 按照升级顺序排列的卡片
+     */
+    public List<CardEconomics> plan() {
+        var remaining = fixedBalance;
+        var plan = new ArrayList<CardEconomics>();
+        var sorted = candidates.values().stream().sorted(CardEconomics.ORDER).toList();
+        for (CardEconomics candidate : sorted) {
+            if (!canUpgrade(candidate, remaining)) break;
+            plan.add(candidate);
+            remaining -= candidate.cost();
+        }
+        return plan;
+    }
+
+    private void updateBalance(BigDecimal balance) {
+        this.balance = Objects.requireNonNullElse(balance, BigDecimal.ZERO);
+        this.fixedBalance = CardEconomics.floor(this.balance);
+    }
+
+    private void offer(String categoryName, CardsSnapshot.CardInfo card) {
+        CardEconomics.of(categoryName, card).ifPresent(candidate -> {
+            candidates.put(card.id(), candidate);
+            queue.offer(candidate);
+        });
+    }
+
+    private CardEconomics peek() {
+        CardEconomics top;
+        while ((top = queue.peek()) != null && candidates.get(top.card().id()) != top) {
+            queue.poll();
+        }
+        return top;
+    }
+
+    private boolean canUpgrade(CardEconomics candidate, long balance) {
+
+        // 同时满足所有条件才能升级
+        return
+                // 余额比卡片升级所需的花费多
+                balance >= candidate.cost()
+
+                        // 卡片升级的价格满足一定条件
+                        && candidate.price() <= maximumPrice;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2024 allurx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package red.zyc.babydogepaws.game;
+
+import red.zyc.babydogepaws.model.response.GameUser;
+import red.zyc.babydogepaws.model.response.MineResult;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户能量模型，根据某一时刻观测到的能量推算之后任意时刻的能量<br>
+ * 能量每秒恢复{@link #RECOVERY_PER_SECOND}点直到{@link #maxEnergy}，每次点击消耗{@link #earnPerTap}点能量
+ *
+ * @param energy          观测到的能量
+ * @param maxEnergy       最大能量
+ * @param earnPerTap      每次点击的收益，同时也是每次点击消耗的能量
+ * @param observedAtNanos 观测时间（{@link System#nanoTime()}）
+ * @author allurx
+ */
+public record EnergyModel(int energy, int maxEnergy, int earnPerTap, long observedAtNanos) {
+
+    /**
+     * 每秒恢复的能量
+     */
+    public static final int RECOVERY_PER_SECOND = 3;
+
+    public static EnergyModel of(GameUser user, long nowNanos) {
+        return new EnergyModel(user.energy(), user.maxEnergy(), user.earnPerTap(), nowNanos);
+    }
+
+    /**
+     * @param result   挖矿请求的响应
+     * @param nowNanos 当前时间
+     * @return 挖矿后的能量模型，请求失败或者响应中没有用户信息时为null，此时需要重新获取用户状态
+     */
+    public static EnergyModel of(MineResult result, long nowNanos) {
+        return result == null || result.user() == null ? null : of(result.user(), nowNanos);
+    }
+
+    /**
+     * @param nowNanos 当前时间
+     * @return 推算的当前能量
+     */
+    public int energyAt(long nowNanos) {
+        var recovered = TimeUnit.NANOSECONDS.toSeconds(Math.max(0, nowNanos - observedAtNanos)) * RECOVERY_PER_SECOND;
+        return (int) Math.min(maxEnergy, energy + recovered);
+    }
+
+    /**
+     * @param nowNanos 当前时间
+     * @return 当前能量刚好能够支撑的点击次数
+     */
+    public int tapsAt(long nowNanos) {
+        return earnPerTap <= 0 ? 0 : energyAt(nowNanos) / earnPerTap;
+    }
+
+    /**
+     * @param nowNanos 当前时间
+     * @return 距离能量充满还需要的时间，能量充满之后不再恢复，所以这是下一次挖矿的最佳时间，最少1秒
+     */
+    public Duration untilFull(long nowNanos) {
+        var fullAtNanos = observedAtNanos + TimeUnit.SECONDS.toNanos(Math.ceilDiv(Math.max(0, maxEnergy - energy), RECOVERY_PER_SECOND));
+        return Duration.ofNanos(Math.max(TimeUnit.SECONDS.toNanos(1), fullAtNanos - nowNanos));
+    }
+
+    /**
+     * @param nowNanos 当前时间
+     * @return 使用全能量激励之后的能量模型
+     */
+    public EnergyModel refill(long nowNanos) {
+        return new EnergyModel(maxEnergy, maxEnergy, earnPerTap, nowNanos);
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright 2024 allurx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package red.zyc.babydogepaws.game;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import red.zyc.babydogepaws.config.BabyDogePawsProperties;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * HTTP/2流并发控制器<br>
+ * HTTP/2模式下同一个域名的所有请求复用同一条连接，同时进行中的流超过服务端SETTINGS_MAX_CONCURRENT_STREAMS时
+ * 客户端会抛出too many concurrent streams，服务端压力大时还会发送GOAWAY关闭连接。这里限制同时进行中的流的数量，
+ * 超过限制的请求进入队列等待其它流结束，而不是直接失败：
+ * <ul>
+ *     <li>too many concurrent streams：请求还没有发出，把限制降到当前进行中的流数量减1并重新排队</li>
+ *     <li>GOAWAY：连接已经关闭，下一个请求会自动建立新连接，GET请求重新排队，其它请求可能已经被服务端处理过了，直接失败</li>
+ *     <li>请求成功：每成功limit个请求，限制加1，直到{@link BabyDogePawsProperties.Http#maxConcurrentStreams()}</li>
+ * </ul>
+ * 响应头返回后流并没有结束，延迟读取的body依旧占用着流，所以只有body被读取完、读取失败或者被关闭时才会释放占用的流。
+ * HTTP/1.1模式下不做任何控制
+ *
+ * @author allurx
+ */
+@Component
+public class Http2StreamGovernor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Http2StreamGovernor.class);
+    private static final String TOO_MANY_CONCURRENT_STREAMS = "too many concurrent streams";
+    private static final String GOAWAY_RECEIVED = ": GOAWAY received";
+
+    private final BabyDogePawsProperties.Http config;
+    private final boolean enabled;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+
+    /**
+     * 以下字段都被lock保护
+     */
+    private int limit;
+    private int inFlight;
+    private int successes;
+
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder refused = new LongAdder();
+    private final LongAdder goAways = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+
+    public Http2StreamGovernor(BabyDogePawsProperties babyDogePawsProperties) {
+        this.config = babyDogePawsProperties.http();
+        this.enabled = config.version() == HttpClient.Version.HTTP_2;
+        this.limit = Math.max(1, config.maxConcurrentStreams());
+    }
+
+    /**
+     * 发送请求，HTTP/2模式下同时进行中的流不会超过当前限制
+     *
+     * @param client      {@link HttpClient}
+     * @param request     {@link HttpRequest}
+     * @param bodyHandler {@link HttpResponse.BodyHandler}
+     * @param <T>         响应body的类型
+     * @return 响应
+     */
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpClient client, HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) {
+        return enabled ? send(client, request, bodyHandler, 0) : client.sendAsync(request, bodyHandler);
+    }
+
+    /**
+     * @return 流并发控制器的统计信息
+     */
+    public Stats stats() {
+        lock.lock();
+        try {
+            return new Stats(enabled, config.maxConcurrentStreams(), limit, inFlight, waiters.size(), queued.sum(), refused.sum(), goAways.sum(), retries.sum());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> send(HttpClient client, HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler, int retry) {
+        var stream = new Stream();
+        return acquire()
+                .thenCompose(ignored -> client.sendAsync(request, stream.track(bodyHandler)))
+                .handle((response, throwable) -> {
+
+                    // 已经收到响应头的流由body的订阅者负责释放
+                    if (throwable == null) {
+                        return CompletableFuture.completedFuture(response);
+                    }
+                    var cause = unwrap(throwable);
+                    var outcome = stream.responded ? Outcome.FAILURE : outcome(cause);
+                    stream.release(outcome);
+                    if (outcome == Outcome.FAILURE) {
+                        return CompletableFuture.<HttpResponse<T>>failedFuture(cause);
+                    }
+                    if (retry < config.maxStreamRetries() && (outcome == Outcome.REFUSED || "GET".equals(request.method()))) {
+                        retries.increment();
+                        LOGGER.debug("[HTTP/2流被拒绝后重新排队]-{}:{}:{}", request.uri(), outcome, retry + 1);
+                        return send(client, request, bodyHandler, retry + 1);
+                    }
+                    return CompletableFuture.<HttpResponse<T>>failedFuture(cause);
+                })
+                .thenCompose(future -> future);
+    }
+
+    private CompletableFuture<Void> acquire() {
+        lock.lock();
+        try {
+            if (inFlight < limit) {
+                inFlight++;
+                return CompletableFuture.completedFuture(null);
+            }
+            var waiter = new CompletableFuture<Void>();
+            waiters.offer(waiter);
+            queued.increment();
+            return waiter;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(Outcome outcome) {
+        var ready = new ArrayDeque<CompletableFuture<Void>>();
+        lock.lock();
+        try {
+            inFlight--;
+            switch (outcome) {
+                case SUCCESS -> {
+                    if (limit < config.maxConcurrentStreams() && ++successes >= limit) {
+                        limit++;
+                        successes = 0;
+                    }
+                }
+                case REFUSED -> {
+                    refused.increment();
+                    limit = Math.max(1, Math.min(limit, inFlight));
+                    successes = 0;
+                }
+                case GO_AWAY -> goAways.increment();
+                case FAILURE -> {
+                }
+            }
+
+            // 把空出来的流交给排队的请求，在锁外完成，避免请求的后续处理在锁内执行
+            while (inFlight < limit && !waiters.isEmpty()) {
+                inFlight++;
+                ready.offer(waiters.poll());
+            }
+        } finally {
+            lock.unlock();
+        }
+        ready.forEach(waiter -> waiter.complete(null));
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        var cause = throwable;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    /**
+     * 判断还没有收到响应头的请求失败的原因。JDK的HttpClient对这两种情况都没有专门的异常类型，
+     * 都是由Http2Connection直接抛出的IOException，所以只认IOException本身（不包括子类，例如超时或者连接失败），
+     * 再根据Http2Connection中固定的异常信息区分
+     *
+     * @param cause 请求失败的异常
+     * @return 失败的原因
+     */
+    private static Outcome outcome(Throwable cause) {
+        if (cause.getClass() != IOException.class || cause.getMessage() == null) {
+            return Outcome.FAILURE;
+        }
+        if (cause.getMessage().equals(TOO_MANY_CONCURRENT_STREAMS)) {
+            return Outcome.REFUSED;
+        }
+        if (cause.getMessage().endsWith(GOAWAY_RECEIVED)) {
+            return Outcome.GO_AWAY;
+        }
+        return Outcome.FAILURE;
+    }
+
+    /**
+     * 一次请求占用的流，保证只释放一次
+     */
+    private final class Stream {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        /**
+         * 是否已经收到响应头，收到之后的失败都不是流被拒绝或者GOAWAY导致的，也不能再重新排队
+         */
+        private volatile boolean responded;
+
+        private <T> HttpResponse.BodyHandler<T> track(HttpResponse.BodyHandler<T> bodyHandler) {
+            return responseInfo -> {
+                responded = true;
+                return new StreamBodySubscriber<>(bodyHandler.apply(responseInfo), this);
+            };
+        }
+
+        private void release(Outcome outcome) {
+            if (released.compareAndSet(false, true)) {
+                Http2StreamGovernor.this.release(outcome);
+            }
+        }
+    }
+
+    /**
+     * body被读取完、读取失败或者被关闭（取消订阅）时释放占用的流
+     *
+     * @param delegate 原始的body订阅者
+     * @param stream   占用的流
+     * @param <T>      响应body的类型
+     */
+    private record StreamBodySubscriber<T>(HttpResponse.BodySubscriber<T> delegate,
+                                           Stream stream) implements HttpResponse.BodySubscriber<T> {
+
+        @Override
+        public CompletionStage<T> getBody() {
+            return delegate.getBody();
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            delegate.onSubscribe(new Flow.Subscription() {
+
+                @Override
+                public void request(long n) {
+                    subscription.request(n);
+                }
+
+                @Override
+                public void cancel() {
+                    stream.release(Outcome.SUCCESS);
+                    subscription.cancel();
+                }
+            });
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> item) {
+            delegate.onNext(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            stream.release(Outcome.FAILURE);
+            delegate.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            stream.release(Outcome.SUCCESS);
+            delegate.onComplete();
+        }
+    }
+
+    private enum Outcome {
+        SUCCESS, FAILURE, REFUSED, GO_AWAY
+    }
+
+    /**
+     * 流并发控制器统计信息
+     *
+     * @param enabled              是否处于HTTP/2模式
+     * @param maxConcurrentStreams 同时进行中的流的上限
+     * @param limit                当前的限制
+     * @param inFlight             正在进行中的流
+     * @param waiting              正在排队的请求
+     * @param queued               排过队的请求数
+     * @param refused              too many concurrent streams的次数
+     * @param goAways              因为GOAWAY失败的请求数
+     * @param retries              重新排队的次数
+     */
+    public record Stats(boolean enabled,
+                        int maxConcurrentStreams,
+                        int limit,
+                        int inFlight,
+                        int waiting,
+                        long queued,
+                        long refused,
+                        long goAways,
+                        long retries) {
+    }
+}
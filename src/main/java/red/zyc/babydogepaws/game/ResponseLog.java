@@ -0,0 +1,210 @@
+/*
+ * Copyright 2024 allurx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package red.zyc.babydogepaws.game;
+
+import red.zyc.babydogepaws.common.util.JsonBodyHandler;
+import red.zyc.babydogepaws.config.BabyDogePawsProperties.ApiLogFormat;
+import red.zyc.babydogepaws.config.BabyDogePawsProperties.ApiLogPolicy;
+import red.zyc.babydogepaws.game.BabyDogePawsApiRequest.Request;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.http.HttpResponse;
+
+import static red.zyc.babydogepaws.common.constant.Constants.OBJECT_DATA_TYPE;
+import static red.zyc.kit.json.JsonOperator.JACKSON_OPERATOR;
+
+/**
+ * 延迟渲染的接口日志参数，只有日志真正输出时才会调用{@link #toString()}格式化响应<br>
+ * 响应body最多渲染{@link ApiLogPolicy#maxBodyLength()}个字符：json格式的body单独序列化到一个有长度上限的{@link Writer}中，
+ * 达到上限后立即停止序列化，请求方法、uri等其它字段不占用body的长度；超过上限的失败响应不再尝试解析成json，直接截断原始字符串。
+ * 这样日志的开销不会随着响应body的大小增长
+ *
+ * @author allurx
+ */
+final class ResponseLog {
+
+    private static final String IGNORED = "ignored";
+
+    private final Request request;
+    private final HttpResponse<?> response;
+    private final ApiLogPolicy policy;
+    private final boolean containsBody;
+
+    /**
+     * @param request      {@link Request}
+     * @param response     {@link HttpResponse}
+     * @param policy       接口的日志配置
+     * @param containsBody 是否需要包含body数据
+     */
+    ResponseLog(Request request, HttpResponse<?> response, ApiLogPolicy policy, boolean containsBody) {
+        this.request = request;
+        this.response = response;
+        this.policy = policy;
+        this.containsBody = containsBody;
+    }
+
+    @Override
+    public String toString() {
+        try {
+            return policy.format() == ApiLogFormat.COMPACT ? compact() : json();
+        } catch (Throwable t) {
+            return response.request().method() + " " + response.request().uri() + " " + response.statusCode() + " (" + t + ")";
+        }
+    }
+
+    /**
+     * 格式：响应码 请求方法 路径 摘要，失败时摘要为截断后的原始body
+     */
+    private String compact() {
+        var sb = new StringBuilder(64)
+                .append(response.statusCode()).append(' ')
+                .append(response.request().method()).append(' ')
+                .append(response.request().uri().getRawPath());
+        var body = response.body();
+        String summary = null;
+        if (body instanceof JsonBodyHandler.JsonBody<?> jsonBody) {
+            summary = jsonBody.error() != null ? jsonBody.error() : jsonBody.data() == null ? null : request.summarize(jsonBody.data());
+        } else if (body instanceof String s) {
+            summary = s;
+        }
+        if (summary != null) {
+            sb.append(' ');
+            append(sb, summary, policy.maxBodyLength());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 格式与{@link red.zyc.babydogepaws.common.util.WebUtil#formatJsonResponse(HttpResponse, boolean)}相同，
+     * body超过上限时被截断，截断后的body不再是合法的json，所以作为字符串输出
+     */
+    private String json() throws IOException {
+        var writer = new StringWriter(256);
+        try (var generator = JsonBodyHandler.OBJECT_MAPPER.createGenerator(writer)) {
+            generator.writeStartObject();
+            generator.writeStringField("method", response.request().method());
+            generator.writeStringField("uri", response.request().uri().toString());
+            generator.writeNumberField("code", response.statusCode());
+            if (containsBody) {
+                var body = body(convertBody(response.body()));
+                if (body.truncated) {
+                    generator.writeStringField("body", body.toString());
+                } else {
+                    generator.writeFieldName("body");
+                    generator.writeRawValue(body.toString());
+                }
+            } else {
+                generator.writeStringField("body", IGNORED);
+            }
+            generator.writeEndObject();
+        }
+        return writer.toString();
+    }
+
+    /**
+     * @return 保存了json格式body的{@link BoundedWriter}，超过上限时被截断
+     */
+    private BoundedWriter body(Object body) throws IOException {
+        var writer = new BoundedWriter(policy.maxBodyLength());
+        try {
+            JsonBodyHandler.OBJECT_MAPPER.writeValue(writer, body);
+        } catch (IOException e) {
+            if (!writer.truncated) throw e;
+        }
+        return writer;
+    }
+
+    private Object convertBody(Object body) {
+        return switch (body) {
+            case String s -> tryConvert(s);
+            case JsonBodyHandler.JsonBody<?> jsonBody -> jsonBody.error() != null ? tryConvert(jsonBody.error()) : jsonBody.data();
+            case null, default -> body;
+        };
+    }
+
+    /**
+     * 只有不会被截断的body才尝试作为json字符串进行反序列化
+     */
+    private Object tryConvert(String body) {
+        if (body.length() > policy.maxBodyLength()) {
+            return body;
+        }
+        try {
+            return JACKSON_OPERATOR.fromJsonString(body, OBJECT_DATA_TYPE);
+        } catch (Throwable t) {
+            return body;
+        }
+    }
+
+    private static void append(StringBuilder sb, String s, int maxLength) {
+        if (s.length() <= maxLength) {
+            sb.append(s);
+        } else {
+            sb.append(s, 0, Math.max(0, maxLength)).append("...(").append(s.length()).append(" chars)");
+        }
+    }
+
+    /**
+     * 最多保存maxLength个字符的{@link Writer}，超过上限后抛出异常中断序列化
+     */
+    private static final class BoundedWriter extends Writer {
+
+        private static final IOException LIMIT_EXCEEDED = new IOException("limit exceeded") {
+            @Override
+            public synchronized Throwable fillInStackTrace() {
+                return this;
+            }
+        };
+
+        private final StringBuilder sb = new StringBuilder(256);
+        private final int maxLength;
+        private boolean truncated;
+
+        private BoundedWriter(int maxLength) {
+            this.maxLength = Math.max(0, maxLength);
+        }
+
+        @Override
+        public void write(char[] buf, int off, int len) throws IOException {
+            if (truncated) {
+                throw LIMIT_EXCEEDED;
+            }
+            var remaining = maxLength - sb.length();
+            if (len <= remaining) {
+                sb.append(buf, off, len);
+                return;
+            }
+            sb.append(buf, off, remaining);
+            truncated = true;
+            throw LIMIT_EXCEEDED;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public String toString() {
+            return truncated ? sb + "...(truncated)" : sb.toString();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2024 allurx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package red.zyc.babydogepaws.game;
+
+import org.springframework.stereotype.Component;
+import red.zyc.babydogepaws.model.persistent.BabyDogePawsUser;
+
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 所有用户定时任务的注册表<br>
+ * 每个用户的任务保存在按照用户id维护的{@link UserRuntime}中，注册表只记录有任务的用户，
+ * 并且在任务状态变化时维护每种状态的任务数，所以获取汇总计数不需要遍历所有任务。
+ * 被同名新任务替换的旧任务会从汇总计数中移除，所以每个用户的每种任务最多只占一个计数
+ *
+ * @author allurx
+ */
+@Component
+public class TaskRegistry {
+
+    private final Map<Integer, UserRuntime> runtimes = new ConcurrentHashMap<>();
+    private final Set<UserRuntime> users = ConcurrentHashMap.newKeySet();
+    private final Map<UserTask.State, AtomicInteger> counts = new EnumMap<>(UserTask.State.class);
+
+    public TaskRegistry() {
+        for (UserTask.State state : UserTask.State.values()) {
+            counts.put(state, new AtomicInteger());
+        }
+    }
+
+    /**
+     * @param user 用户
+     * @return 用户的运行时状态，第一次获取时创建
+     */
+    public UserRuntime runtime(BabyDogePawsUser user) {
+        return runtimes.computeIfAbsent(user.id, id -> new UserRuntime());
+    }
+
+    /**
+     * 注册用户的任务，同名的旧任务会被取消并从汇总计数中移除，新任务属于用户当前的{@link UserRuntime#handle() 取消句柄}
+     *
+     * @param user 用户
+     * @param name 任务名称
+     * @return 新注册的任务
+     */
+    public UserTask register(BabyDogePawsUser user, String name) {
+        var runtime = runtime(user);
+        var task = new UserTask(this, user.phoneNumber, name, runtime.handle());
+        counts.get(UserTask.State.SCHEDULED).incrementAndGet();
+        users.add(runtime);
+        var previous = runtime.tasks.put(name, task);
+        if (previous != null) {
+            previous.cancel();
+            counts.get(UserTask.State.CANCELLED).decrementAndGet();
+        }
+        return task;
+    }
+
+    /**
+     * @return 所有任务的汇总计数
+     */
+    public Stats stats() {
+        var states = new EnumMap<UserTask.State, Integer>(UserTask.State.class);
+        counts.forEach((state, count) -> states.put(state, count.get()));
+        return new Stats(users.size(), states);
+    }
+
+    /**
+     * @return 所有用户的任务，按照手机号和任务名称排序
+     */
+    public List<UserTask.View> list() {
+        return users.stream()
+                .flatMap(runtime -> runtime.tasks.values().stream())
+                .map(UserTask::view)
+                .sorted(Comparator.comparing(UserTask.View::phoneNumber, Comparator.nullsLast(Comparator.naturalOrder())).thenComparing(UserTask.View::task))
+                .toList();
+    }
+
+    void move(UserTask.State from, UserTask.State to) {
+        counts.get(from).decrementAndGet();
+        counts.get(to).incrementAndGet();
+    }
+
+    /**
+     * 任务汇总计数
+     *
+     * @param users  有任务的用户数
+     * @param states 每种状态的任务数
+     */
+    public record Stats(int users, Map<UserTask.State, Integer> states) {
+    }
+
+    /**
+     * 任务注册表快照
+     *
+     * @param stats 汇总计数
+     * @param tasks 所有用户的任务
+     */
+    public record Snapshot(Stats stats, List<UserTask.View> tasks) {
+    }
+}
@@ -0,0 +1,372 @@
+/*
+ * Copyright 2024 allurx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package red.zyc.babydogepaws.game;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import red.zyc.babydogepaws.config.BabyDogePawsProperties;
+import red.zyc.babydogepaws.metrics.BabyDogePawsMetrics;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 所有定时任务共享的分层时间轮<br>
+ * 只有一个tick线程负责推进时间轮，到期的任务被分发到各自的虚拟线程中执行，所以任务的执行时间不会影响其它任务的调度。
+ * 新增的任务先放入无锁队列，由tick线程在每个tick开始时放入对应的时间槽，时间轮本身只会被tick线程访问。<br>
+ * 第0层每个槽的跨度是一个tick，第i层每个槽的跨度是第i-1层整个时间轮的跨度，
+ * 较高层的槽到期时其中的任务会按照剩余时间重新放入较低的层（cascade）<br>
+ * 取消任务只是修改任务或者{@link Handle}的状态，被取消的任务在到期或者cascade时才会被丢弃
+ *
+ * @author allurx
+ */
+@Component
+public class TimingWheel {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TimingWheel.class);
+
+    private final long tickNanos;
+    private final int bits;
+    private final int mask;
+    private final int levels;
+    private final ArrayDeque<Timeout>[][] wheels;
+    private final ConcurrentLinkedQueue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final long startNanos = System.nanoTime();
+    private final Thread ticker;
+    private volatile boolean running = true;
+
+    /**
+     * 下一个需要处理的tick，只会被tick线程访问
+     */
+    private long base;
+
+    private final LongAdder scheduled = new LongAdder();
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final Map<String, Lateness> lateness = new ConcurrentHashMap<>();
+    private final BabyDogePawsMetrics metrics;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(BabyDogePawsProperties babyDogePawsProperties, BabyDogePawsMetrics metrics) {
+        this.metrics = metrics;
+        var config = babyDogePawsProperties.timingWheel();
+        this.tickNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(1), config.tick().toNanos());
+        this.bits = 32 - Integer.numberOfLeadingZeros(Math.max(2, config.wheelSize()) - 1);
+        this.mask = (1 << bits) - 1;
+        this.levels = Math.max(1, Math.min(config.levels(), 62 / bits));
+        this.wheels = new ArrayDeque[levels][1 << bits];
+        for (ArrayDeque<Timeout>[] wheel : wheels) {
+            for (int i = 0; i < wheel.length; i++) {
+                wheel[i] = new ArrayDeque<>();
+            }
+        }
+
+        // tick线程使用平台线程，避免虚拟线程的载体线程繁忙时影响时间轮的推进
+        this.ticker = Thread.ofPlatform().name("TimingWheel").daemon().start(this::run);
+    }
+
+    /**
+     * 延迟执行一次任务
+     *
+     * @param name    任务名称，用于统计延迟以及命名执行任务的虚拟线程
+     * @param handle  任务所属的{@link Handle}
+     * @param delay   延迟时间
+     * @param unit    延迟时间单位
+     * @param command 任务
+     * @return {@link Timeout}
+     */
+    public Timeout schedule(String name, Handle handle, long delay, TimeUnit unit, Runnable command) {
+        return add(new Timeout(name, handle, command, 0L, System.nanoTime() + unit.toNanos(Math.max(0L, delay))));
+    }
+
+    /**
+     * 以固定延迟周期性的执行任务，上一次执行结束后才会开始计算下一次执行的延迟
+     *
+     * @param name         任务名称，用于统计延迟以及命名执行任务的虚拟线程
+     * @param handle       任务所属的{@link Handle}
+     * @param initialDelay 第一次执行的延迟时间
+     * @param delay        两次执行之间的延迟
+     * @param unit         延迟时间单位
+     * @param command      任务
+     * @return {@link Timeout}
+     */
+    public Timeout scheduleWithFixedDelay(String name, Handle handle, long initialDelay, long delay, TimeUnit unit, Runnable command) {
+        return add(new Timeout(name, handle, command, Math.max(tickNanos, unit.toNanos(delay)), System.nanoTime() + unit.toNanos(Math.max(0L, initialDelay))));
+    }
+
+    /**
+     * @return 时间轮的统计信息
+     */
+    public Stats stats() {
+        var tasks = new TreeMap<String, TaskLateness>();
+        lateness.forEach((name, value) -> tasks.put(name, value.snapshot()));
+        return new Stats(TimeUnit.NANOSECONDS.toMillis(tickNanos), 1 << bits, levels, scheduled.sum(), dispatched.sum(), cancelled.sum(), pending.size(), tasks);
+    }
+
+    /**
+     * 应用关闭时停止tick线程，已经分发的任务不受影响
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(ticker);
+    }
+
+    private Timeout add(Timeout timeout) {
+        scheduled.increment();
+        pending.offer(timeout);
+        return timeout;
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                Timeout timeout;
+                while ((timeout = pending.poll()) != null) {
+                    place(timeout);
+                }
+                var now = System.nanoTime();
+                while (base <= (now - startNanos) / tickNanos) {
+                    tick(now);
+                }
+                var remaining = startNanos + base * tickNanos - System.nanoTime();
+                if (remaining > 0) {
+                    LockSupport.parkNanos(this, remaining);
+                }
+            } catch (Throwable t) {
+                LOGGER.error("[时间轮tick发生异常]", t);
+            }
+        }
+        LOGGER.info("[时间轮已关闭]-{}", stats());
+    }
+
+    /**
+     * 处理一个tick：第0层转完一圈时先从较高的层cascade，再执行第0层当前槽中的所有任务
+     */
+    private void tick(long now) {
+        var index = (int) (base & mask);
+        if (index == 0) {
+            for (int level = 1; level < levels; level++) {
+                var levelIndex = (int) ((base >>> (bits * level)) & mask);
+                cascade(wheels[level][levelIndex]);
+                if (levelIndex != 0) break;
+            }
+        }
+        var timeouts = drain(wheels[0][index]);
+        base++;
+        for (Timeout timeout : timeouts) {
+            expire(timeout, now);
+        }
+    }
+
+    private void cascade(ArrayDeque<Timeout> bucket) {
+        for (Timeout timeout : drain(bucket)) {
+            place(timeout);
+        }
+    }
+
+    /**
+     * 先取出槽中所有的任务再处理，重新放入时间轮的任务可能会落在同一个槽中
+     */
+    private static Timeout[] drain(ArrayDeque<Timeout> bucket) {
+        var timeouts = bucket.toArray(Timeout[]::new);
+        bucket.clear();
+        return timeouts;
+    }
+
+    /**
+     * 按照任务到期的tick与{@link #base}之间的距离选择层，按照到期的tick选择槽，超过最高层跨度的任务放在最高层等待cascade
+     */
+    private void place(Timeout timeout) {
+        if (timeout.isCancelled()) {
+            cancelled.increment();
+            return;
+        }
+        var expires = Math.max(base, Math.ceilDiv(timeout.deadlineNanos - startNanos, tickNanos));
+        var maxSpan = 1L << (bits * levels);
+        if (expires - base >= maxSpan) {
+            expires = base + maxSpan - 1;
+        }
+        var distance = expires - base;
+        var level = 0;
+        while (level < levels - 1 && distance >= 1L << (bits * (level + 1))) {
+            level++;
+        }
+        wheels[level][(int) ((expires >>> (bits * level)) & mask)].offer(timeout);
+    }
+
+    private void expire(Timeout timeout, long now) {
+        if (timeout.isCancelled()) {
+            cancelled.increment();
+            return;
+        }
+
+        // 因为超过最高层跨度而被提前cascade下来的任务
+        if (timeout.deadlineNanos - now > tickNanos) {
+            place(timeout);
+            return;
+        }
+        dispatched.increment();
+        var latenessNanos = Math.max(0L, now - timeout.deadlineNanos);
+        lateness.computeIfAbsent(timeout.name, name -> new Lateness()).record(latenessNanos);
+        metrics.schedulerLateness(timeout.name, latenessNanos);
+        Thread.ofVirtual().name(timeout.name).start(() -> timeout.run(this));
+    }
+
+    /**
+     * 一组任务的取消句柄，例如一个用户的所有任务，取消句柄后其中所有的任务都不会再执行
+     */
+    public static final class Handle {
+
+        private volatile boolean cancelled = false;
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    /**
+     * 时间轮中的一个任务，周期任务每次执行结束后会以新的到期时间重新放入时间轮
+     */
+    public static final class Timeout {
+
+        private final String name;
+        private final Handle handle;
+        private final Runnable command;
+        private final long periodNanos;
+        private volatile long deadlineNanos;
+        private volatile boolean cancelled = false;
+
+        private Timeout(String name, Handle handle, Runnable command, long periodNanos, long deadlineNanos) {
+            this.name = name;
+            this.handle = handle;
+            this.command = command;
+            this.periodNanos = periodNanos;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * 取消任务，正在执行的任务不会被中断
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled || (handle != null && handle.isCancelled());
+        }
+
+        /**
+         * @return 任务名称
+         */
+        public String name() {
+            return name;
+        }
+
+        /**
+         * @param unit 时间单位
+         * @return 距离下一次执行的时间，任务正在执行时为负数
+         */
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        private void run(TimingWheel wheel) {
+            try {
+                command.run();
+            } catch (Throwable t) {
+                LOGGER.error("[执行定时任务发生异常]-{}", name, t);
+            } finally {
+                if (periodNanos > 0 && !isCancelled()) {
+                    deadlineNanos = System.nanoTime() + periodNanos;
+                    wheel.add(this);
+                }
+            }
+        }
+    }
+
+    /**
+     * 单个任务的调度延迟，即任务实际被分发的时间与到期时间的差
+     */
+    private static final class Lateness {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLong lastNanos = new AtomicLong();
+
+        private void record(long latenessNanos) {
+            count.increment();
+            totalNanos.add(latenessNanos);
+            maxNanos.accumulateAndGet(latenessNanos, Math::max);
+            lastNanos.set(latenessNanos);
+        }
+
+        private TaskLateness snapshot() {
+            var n = count.sum();
+            return new TaskLateness(n,
+                    n == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalNanos.sum() / n),
+                    TimeUnit.NANOSECONDS.toMillis(maxNanos.get()),
+                    TimeUnit.NANOSECONDS.toMillis(lastNanos.get()));
+        }
+    }
+
+    /**
+     * 单个任务的调度延迟统计
+     *
+     * @param dispatched    分发的次数
+     * @param averageMillis 平均延迟
+     * @param maxMillis     最大延迟
+     * @param lastMillis    最近一次延迟
+     */
+    public record TaskLateness(long dispatched, long averageMillis, long maxMillis, long lastMillis) {
+    }
+
+    /**
+     * 时间轮统计信息
+     *
+     * @param tickMillis 每个tick的跨度
+     * @param wheelSize  每层的槽数
+     * @param levels     层数
+     * @param scheduled  放入时间轮的次数（包括周期任务的每一次）
+     * @param dispatched 分发执行的次数
+     * @param cancelled  被丢弃的已取消任务数
+     * @param pending    等待放入时间槽的任务数
+     * @param tasks      每个任务的调度延迟
+     */
+    public record Stats(long tickMillis,
+                        int wheelSize,
+                        int levels,
+                        long scheduled,
+                        long dispatched,
+                        long cancelled,
+                        int pending,
+                        Map<String, TaskLateness> tasks) {
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2024 allurx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package red.zyc.babydogepaws.game;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 预约式令牌桶，令牌不足时不会阻塞调用方，而是预约一个未来的令牌并返回需要等待的时间，
+ * 由调用方自己决定如何等待
+ *
+ * @author allurx
+ */
+final class TokenBucket {
+
+    private final double permitsPerNano;
+    private final double capacity;
+
+    /**
+     * 当前可用的令牌数，预约之后可能为负数
+     */
+    private double tokens;
+    private long lastRefillNanos;
+
+    TokenBucket(double permitsPerSecond, int burst) {
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = Math.max(1, burst);
+        this.tokens = capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * 预约一个令牌
+     *
+     * @param maxWaitNanos 最多愿意等待的时间
+     * @return 获取到令牌需要等待的时间，超过maxWaitNanos时不会预约令牌并返回-1
+     */
+    synchronized long reserve(long maxWaitNanos) {
+        var now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * permitsPerNano);
+        lastRefillNanos = now;
+        var waitNanos = tokens >= 1 ? 0L : (long) Math.ceil((1 - tokens) / permitsPerNano);
+        if (waitNanos > maxWaitNanos) {
+            return -1L;
+        }
+        tokens -= 1;
+        return waitNanos;
+    }
+
+    /**
+     * 归还一个已经预约的令牌
+     */
+    synchronized void refund() {
+        tokens = Math.min(capacity, tokens + 1);
+    }
+}
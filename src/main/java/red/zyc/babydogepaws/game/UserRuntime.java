@@ -0,0 +1,85 @@
+/*
+ * Copyright 2024 allurx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package red.zyc.babydogepaws.game;
+
+import red.zyc.babydogepaws.model.persistent.BabyDogePawsUser;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 用户在游戏中的运行时状态，包括定时任务、任务的取消句柄以及状态快照，由{@link TaskRegistry}按照用户id维护，
+ * 不会随着{@link BabyDogePawsUser}从数据库中刷新而丢失
+ *
+ * @author allurx
+ */
+public final class UserRuntime {
+
+    /**
+     * 任务名称 -> 定时任务，由{@link TaskRegistry}注册
+     */
+    final Map<String, UserTask> tasks = new ConcurrentHashMap<>();
+
+    /**
+     * 游戏中的状态快照，由接口响应更新
+     */
+    public final AtomicReference<UserState> state = new AtomicReference<>();
+
+    private volatile boolean tasksCanceled = false;
+
+    /**
+     * 当前这一代定时任务的取消句柄，每次{@link #renewTasks() 启动新一代任务}时都会替换成新的句柄
+     */
+    private volatile TimingWheel.Handle handle = new TimingWheel.Handle();
+
+    /**
+     * 取消用户的所有任务
+     */
+    public synchronized void cancelAllTask() {
+        handle.cancel();
+        tasks.values().forEach(UserTask::cancel);
+        tasksCanceled = true;
+    }
+
+    /**
+     * 启动新一代定时任务前调用，取消上一代的所有任务并清除取消状态。
+     * 上一代的句柄依旧处于取消状态，所以还留在时间轮中的旧任务不会因为新一代的启动而重新执行
+     *
+     * @return 新一代任务的取消句柄
+     */
+    public synchronized TimingWheel.Handle renewTasks() {
+        handle.cancel();
+        tasks.values().forEach(UserTask::cancel);
+        handle = new TimingWheel.Handle();
+        tasksCanceled = false;
+        return handle;
+    }
+
+    /**
+     * @return 任务是否已经被{@link #cancelAllTask() 取消}了
+     */
+    public boolean tasksCanceled() {
+        return tasksCanceled;
+    }
+
+    /**
+     * @return 当前这一代定时任务的取消句柄
+     */
+    public TimingWheel.Handle handle() {
+        return handle;
+    }
+}
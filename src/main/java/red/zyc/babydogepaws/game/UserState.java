@@ -0,0 +1,74 @@
+/*
+ * Copyright 2024 allurx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package red.zyc.babydogepaws.game;
+
+import red.zyc.babydogepaws.model.response.AuthResult;
+import red.zyc.babydogepaws.model.response.GameUser;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+/**
+ * 用户在游戏中的状态快照，由所有携带用户信息的接口响应（授权、getMe、挖矿、升级卡片）更新，
+ * 定时任务优先读取快照，只有快照过期时才需要调用getMe
+ *
+ * @param balance        余额
+ * @param energy         能量模型，只有getMe和挖矿接口会返回能量信息，所以可能为null
+ * @param profitPerHour  每小时利润
+ * @param currentLeague  当前等级
+ * @param updatedAtNanos 最近一次更新时间（{@link System#nanoTime()}）
+ * @author allurx
+ */
+public record UserState(BigDecimal balance, EnergyModel energy, int profitPerHour, int currentLeague, long updatedAtNanos) {
+
+    /**
+     * @param user     getMe或者挖矿接口返回的用户信息
+     * @param nowNanos 当前时间
+     * @return 新的快照
+     */
+    public static UserState of(GameUser user, long nowNanos) {
+        return new UserState(user.balance(), EnergyModel.of(user, nowNanos), user.profitPerHour(), user.currentLeague(), nowNanos);
+    }
+
+    /**
+     * @param previous   之前的快照，可能为null
+     * @param authResult 授权接口响应，其中没有能量信息，所以沿用之前快照的能量模型
+     * @param nowNanos   当前时间
+     * @return 新的快照
+     */
+    public static UserState of(UserState previous, AuthResult authResult, long nowNanos) {
+        return new UserState(authResult.balance(), previous == null ? null : previous.energy, authResult.profitPerHour(), authResult.currentLeague(), nowNanos);
+    }
+
+    /**
+     * @param previous 之前的快照，为null时说明没有可信的每小时利润以及等级信息，不会创建新的快照
+     * @param balance  升级卡片接口返回的余额
+     * @param nowNanos 当前时间
+     * @return 新的快照
+     */
+    public static UserState of(UserState previous, BigDecimal balance, long nowNanos) {
+        return previous == null || balance == null ? previous : new UserState(balance, previous.energy, previous.profitPerHour, previous.currentLeague, nowNanos);
+    }
+
+    /**
+     * @param maxAge   快照的最长有效期
+     * @param nowNanos 当前时间
+     * @return 快照是否还没有过期
+     */
+    public boolean isFresh(Duration maxAge, long nowNanos) {
+        return nowNanos - updatedAtNanos < maxAge.toNanos();
+    }
+}
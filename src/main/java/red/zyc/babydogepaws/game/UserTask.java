@@ -0,0 +1,201 @@
+/*
+ * Copyright 2024 allurx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package red.zyc.babydogepaws.game;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 用户的一个定时任务，记录任务的状态以及最近一次执行的信息，状态变化会同步到{@link TaskRegistry}的汇总计数中
+ *
+ * @author allurx
+ */
+public final class UserTask {
+
+    private final TaskRegistry registry;
+    private final String phoneNumber;
+    private final String name;
+    private final TimingWheel.Handle handle;
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private State state = State.SCHEDULED;
+    private volatile TimingWheel.Timeout timeout;
+    private volatile long lastDurationNanos;
+    private volatile String lastError;
+    private volatile LocalDateTime lastErrorTime;
+    private volatile LocalDateTime nextFireTime;
+
+    UserTask(TaskRegistry registry, String phoneNumber, String name, TimingWheel.Handle handle) {
+        this.registry = registry;
+        this.phoneNumber = phoneNumber;
+        this.name = name;
+        this.handle = handle;
+    }
+
+    /**
+     * 任务被放入时间轮
+     *
+     * @param timeout    {@link TimingWheel.Timeout}
+     * @param delayNanos 距离下一次执行的时间
+     */
+    public void scheduled(TimingWheel.Timeout timeout, long delayNanos) {
+        this.timeout = timeout;
+        this.nextFireTime = LocalDateTime.now().plusNanos(delayNanos);
+    }
+
+    /**
+     * 任务开始执行
+     */
+    public void started() {
+        transition(State.RUNNING);
+    }
+
+    /**
+     * 任务执行结束
+     *
+     * @param durationNanos 本次执行的耗时
+     * @param error         本次执行发生的异常，没有异常时为null
+     * @param backingOff    本次执行是否失败或者被跳过，下一次执行前处于退避状态
+     * @param delayNanos    距离下一次执行的时间
+     */
+    public void finished(long durationNanos, Throwable error, boolean backingOff, long delayNanos) {
+        runs.increment();
+        lastDurationNanos = durationNanos;
+        if (error != null) {
+            failures.increment();
+            lastError = error.toString();
+            lastErrorTime = LocalDateTime.now();
+        }
+        nextFireTime = LocalDateTime.now().plusNanos(delayNanos);
+        transition(backingOff ? State.BACKING_OFF : State.SCHEDULED);
+    }
+
+    /**
+     * 取消任务，正在执行的任务不会被中断
+     */
+    public void cancel() {
+        var current = timeout;
+        if (current != null) {
+            current.cancel();
+        }
+        transition(State.CANCELLED);
+    }
+
+    /**
+     * @return 任务名称
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * @return 任务所属的那一代任务的取消句柄，任务每次放入时间轮时都应该使用这个句柄，而不是用户当前的句柄
+     */
+    public TimingWheel.Handle handle() {
+        return handle;
+    }
+
+    /**
+     * @return 任务是否已经被取消，任务本身被取消或者所属的那一代任务被取消都算
+     */
+    public boolean isCancelled() {
+        return state() == State.CANCELLED || handle.isCancelled();
+    }
+
+    /**
+     * @return 当前状态
+     */
+    public synchronized State state() {
+        return state;
+    }
+
+    /**
+     * @return 任务的只读视图
+     */
+    public View view() {
+        return new View(phoneNumber,
+                name,
+                state(),
+                runs.sum(),
+                failures.sum(),
+                TimeUnit.NANOSECONDS.toMillis(lastDurationNanos),
+                lastError,
+                lastErrorTime,
+                state() == State.CANCELLED ? null : nextFireTime);
+    }
+
+    /**
+     * 已取消的任务不会再变成其它状态
+     */
+    private synchronized void transition(State to) {
+        if (state == State.CANCELLED || state == to) {
+            return;
+        }
+        registry.move(state, to);
+        state = to;
+    }
+
+    /**
+     * 任务状态
+     */
+    public enum State {
+
+        /**
+         * 等待下一次执行
+         */
+        SCHEDULED,
+
+        /**
+         * 正在执行
+         */
+        RUNNING,
+
+        /**
+         * 最近一次执行失败或者因为游戏服务器不可用被跳过，等待下一次执行
+         */
+        BACKING_OFF,
+
+        /**
+         * 已取消
+         */
+        CANCELLED
+    }
+
+    /**
+     * 任务的只读视图
+     *
+     * @param phoneNumber        用户手机号
+     * @param task               任务名称
+     * @param state              当前状态
+     * @param runs               执行次数
+     * @param failures           执行发生异常的次数
+     * @param lastDurationMillis 最近一次执行的耗时
+     * @param lastError          最近一次执行发生的异常
+     * @param lastErrorTime      最近一次执行发生异常的时间
+     * @param nextFireTime       下一次执行的时间，已取消的任务为null
+     */
+    public record View(String phoneNumber,
+                       String task,
+                       State state,
+                       long runs,
+                       long failures,
+                       long lastDurationMillis,
+                       String lastError,
+                       LocalDateTime lastErrorTime,
+                       LocalDateTime nextFireTime) {
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2024 allurx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package red.zyc.babydogepaws.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import red.zyc.babydogepaws.game.BabyDogePawsApiRequest.Request;
+
+/**
+ * 游戏接口调用事件，事件的持续时间就是请求从发送到收到响应的耗时（不包括限流等待以及退避的时间），
+ * 每次重试都是一个单独的事件
+ *
+ * @author allurx
+ */
+@Name("red.zyc.babydogepaws.ApiCall")
+@Label("Api Call")
+@Description("调用游戏接口")
+@Category({"BabyDogePaws", "Api"})
+@StackTrace(false)
+public class ApiCallEvent extends Event {
+
+    @Label("Endpoint")
+    public String endpoint;
+
+    @Label("Phone Number")
+    public String phoneNumber;
+
+    @Label("Status")
+    @Description("响应码，请求发送失败时为-1")
+    public int status;
+
+    @Label("Retries")
+    @Description("这是第几次重试，第一次请求为0")
+    public int retries;
+
+    /**
+     * 创建事件，真正发送请求时再调用{@link #begin()}
+     *
+     * @param request     {@link Request}
+     * @param phoneNumber 手机号
+     * @param attempt     当前是第几次请求
+     * @return {@link ApiCallEvent}
+     */
+    public static ApiCallEvent of(Request request, String phoneNumber, int attempt) {
+        var event = new ApiCallEvent();
+        event.endpoint = request.name();
+        event.phoneNumber = phoneNumber;
+        event.retries = attempt - 1;
+        return event;
+    }
+
+    /**
+     * 收到响应或者请求失败时提交事件
+     *
+     * @param status 响应码，请求发送失败时为-1
+     */
+    public void complete(int status) {
+        end();
+        if (shouldCommit()) {
+            this.status = status;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2024 allurx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package red.zyc.babydogepaws.jfr;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import red.zyc.babydogepaws.config.BabyDogePawsProperties;
+import red.zyc.babydogepaws.exception.BabyDogePawsException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 运行时开启或关闭的飞行记录<br>
+ * 除了JDK自带的事件外，还会记录{@link ApiCallEvent}、{@link TaskCycleEvent}以及{@link LoginPhaseEvent}，
+ * 记录期间可以随时导出快照，关闭时会把记录导出到{@link BabyDogePawsProperties.Jfr#directory()}中
+ *
+ * @author allurx
+ */
+@Component
+public class FlightRecording {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FlightRecording.class);
+    private static final DateTimeFormatter FILE_NAME_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    private final BabyDogePawsProperties.Jfr config;
+    private Recording recording;
+    private String settings;
+    private Path lastDump;
+
+    /**
+     * 持有期间会导出记录文件，不能使用synchronized，参考{@link red.zyc.babydogepaws.dao.DatabaseExecutor}
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public FlightRecording(BabyDogePawsProperties babyDogePawsProperties) {
+        this.config = babyDogePawsProperties.jfr();
+    }
+
+    /**
+     * 开始记录，已经在记录时直接返回当前状态
+     *
+     * @param settings JDK自带的配置名称（default或者profile），为空时使用{@link BabyDogePawsProperties.Jfr#settings()}
+     * @return 当前状态
+     */
+    public Status start(String settings) {
+        lock.lock();
+        try {
+            if (recording != null) {
+                return status();
+            }
+            var name = Optional.ofNullable(settings).filter(s -> !s.isBlank()).orElse(config.settings());
+            try {
+                var newRecording = new Recording(Configuration.getConfiguration(name));
+                newRecording.setName("baby-doge-paws");
+                newRecording.setToDisk(true);
+                newRecording.setMaxAge(config.maxAge());
+                newRecording.setMaxSize(config.maxSize().toBytes());
+                newRecording.enable(ApiCallEvent.class);
+                newRecording.enable(TaskCycleEvent.class);
+                newRecording.enable(LoginPhaseEvent.class);
+                newRecording.start();
+                this.recording = newRecording;
+                this.settings = name;
+                LOGGER.info("[飞行记录已开始]-{}", name);
+                return status();
+            } catch (IOException | ParseException e) {
+                throw new BabyDogePawsException("飞行记录配置" + name + "加载失败", e);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 导出当前记录的快照，不会停止记录
+     *
+     * @return 当前状态
+     */
+    public Status dump() {
+        lock.lock();
+        try {
+            if (recording != null) {
+                lastDump = dump(recording);
+            }
+            return status();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 停止记录并导出
+     *
+     * @return 当前状态
+     */
+    @PreDestroy
+    public Status stop() {
+        lock.lock();
+        try {
+            if (recording != null) {
+                try {
+                    lastDump = dump(recording);
+                } finally {
+                    recording.close();
+                    recording = null;
+                    LOGGER.info("[飞行记录已停止]-{}", lastDump);
+                }
+            }
+            return status();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return 当前状态
+     */
+    public Status status() {
+        lock.lock();
+        try {
+            return recording == null
+                    ? new Status(RecordingState.CLOSED.name(), null, null, null, 0, Optional.ofNullable(lastDump).map(Path::toString).orElse(null))
+                    : new Status(recording.getState().name(),
+                    settings,
+                    recording.getStartTime(),
+                    Duration.between(recording.getStartTime(), Instant.now()),
+                    recording.getSize(),
+                    Optional.ofNullable(lastDump).map(Path::toString).orElse(null));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Path dump(Recording recording) {
+        var path = Paths.get(config.directory(), "baby-doge-paws-" + LocalDateTime.now().format(FILE_NAME_FORMATTER) + ".jfr").toAbsolutePath();
+        try {
+            Files.createDirectories(path.getParent());
+            recording.dump(path);
+            LOGGER.info("[飞行记录已导出]-{}", path);
+            return path;
+        } catch (IOException e) {
+            throw new BabyDogePawsException("飞行记录导出失败" + path, e);
+        }
+    }
+
+    /**
+     * 飞行记录状态
+     *
+     * @param state     记录状态，没有开始记录时为CLOSED
+     * @param settings  使用的配置名称
+     * @param startTime 开始记录的时间
+     * @param elapsed   已经记录的时长
+     * @param size      已经记录的数据大小（字节）
+     * @param lastDump  最近一次导出的文件
+     */
+    public record Status(String state, String settings, Instant startTime, Duration elapsed, long size, String lastDump) {
+    }
+}
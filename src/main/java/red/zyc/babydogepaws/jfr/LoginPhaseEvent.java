@@ -0,0 +1,127 @@
+/*
+ * Copyright 2024 allurx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package red.zyc.babydogepaws.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 通过selenium登录游戏时每个阶段的事件，事件的持续时间就是该阶段的耗时
+ *
+ * @author allurx
+ */
+@Name("red.zyc.babydogepaws.LoginPhase")
+@Label("Login Phase")
+@Description("游戏登录的一个阶段")
+@Category({"BabyDogePaws", "Login"})
+@StackTrace(false)
+public class LoginPhaseEvent extends Event {
+
+    @Label("Phase")
+    public String phase;
+
+    @Label("Phone Number")
+    public String phoneNumber;
+
+    @Label("Success")
+    public boolean success;
+
+    /**
+     * 登录阶段
+     */
+    public enum Phase {
+
+        /**
+         * 加载telegram页面
+         */
+        PAGE_LOAD,
+
+        /**
+         * 点击play按钮以及第一次play时出现的confirm按钮
+         */
+        PLAY_CLICK,
+
+        /**
+         * 定位游戏iframe
+         */
+        IFRAME,
+
+        /**
+         * 读取并修改sessionStorage模拟手机登录
+         */
+        SESSION_STORAGE,
+
+        /**
+         * 重新加载iframe并等待游戏页面显示
+         */
+        RELOAD,
+
+        /**
+         * 保存登录信息
+         */
+        SAVE_LOGIN_INFO
+    }
+
+    /**
+     * 按顺序记录一次登录的所有阶段，开始下一个阶段时提交上一个阶段
+     */
+    public static class Tracker {
+
+        private final String phoneNumber;
+        private LoginPhaseEvent current;
+
+        public Tracker(String phoneNumber) {
+            this.phoneNumber = phoneNumber;
+        }
+
+        /**
+         * 上一个阶段成功，开始下一个阶段
+         *
+         * @param phase 下一个阶段
+         */
+        public void next(Phase phase) {
+            complete(true);
+            current = new LoginPhaseEvent();
+            current.phoneNumber = phoneNumber;
+            current.phase = phase.name();
+            current.begin();
+        }
+
+        /**
+         * 登录结束，提交最后一个阶段
+         *
+         * @param success 登录是否成功
+         */
+        public void finish(boolean success) {
+            complete(success);
+        }
+
+        private void complete(boolean success) {
+            if (current != null) {
+                current.end();
+                if (current.shouldCommit()) {
+                    current.success = success;
+                    current.commit();
+                }
+                current = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2024 allurx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package red.zyc.babydogepaws.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import red.zyc.babydogepaws.model.persistent.TaskCheckpoint;
+
+/**
+ * 用户定时任务执行一次的事件，事件的持续时间就是任务执行的耗时
+ *
+ * @author allurx
+ */
+@Name("red.zyc.babydogepaws.TaskCycle")
+@Label("Task Cycle")
+@Description("定时任务执行一次")
+@Category({"BabyDogePaws", "Task"})
+@StackTrace(false)
+public class TaskCycleEvent extends Event {
+
+    @Label("Task")
+    public String task;
+
+    @Label("Phone Number")
+    public String phoneNumber;
+
+    @Label("Outcome")
+    public String outcome;
+
+    /**
+     * 创建事件并开始计时
+     *
+     * @param phoneNumber 手机号
+     * @param task        任务名称
+     * @return {@link TaskCycleEvent}
+     */
+    public static TaskCycleEvent start(String phoneNumber, String task) {
+        var event = new TaskCycleEvent();
+        event.phoneNumber = phoneNumber;
+        event.task = task;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * 任务执行完后提交事件
+     *
+     * @param outcome 任务执行的结果
+     */
+    public void complete(TaskCheckpoint.Outcome outcome) {
+        end();
+        if (shouldCommit()) {
+            this.outcome = outcome.name();
+            commit();
+        }
+    }
+}
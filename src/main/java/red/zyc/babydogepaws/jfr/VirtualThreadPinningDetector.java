@@ -0,0 +1,99 @@
+/*
+ * Copyright 2024 allurx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package red.zyc.babydogepaws.jfr;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import red.zyc.babydogepaws.config.BabyDogePawsProperties;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 基于JFR的虚拟线程钉住检测器，只在dev环境下启用<br>
+ * 订阅jdk.VirtualThreadPinned事件，虚拟线程被钉住超过{@link BabyDogePawsProperties.PinningDetector#threshold()}时打印栈帧，
+ * 并按照本项目中最靠近栈顶的方法汇总被钉住的次数，应用关闭时打印汇总信息
+ *
+ * @author allurx
+ */
+@Profile("dev")
+@Component
+public class VirtualThreadPinningDetector {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreadPinningDetector.class);
+    private static final String VIRTUAL_THREAD_PINNED = "jdk.VirtualThreadPinned";
+    private static final String PACKAGE = "red.zyc.babydogepaws";
+
+    private final BabyDogePawsProperties.PinningDetector config;
+    private final RecordingStream stream = new RecordingStream();
+
+    /**
+     * 被钉住的位置 -> 被钉住的次数
+     */
+    private final ConcurrentHashMap<String, LongAdder> sites = new ConcurrentHashMap<>();
+    private final LongAdder pinnedNanos = new LongAdder();
+
+    public VirtualThreadPinningDetector(BabyDogePawsProperties babyDogePawsProperties) {
+        this.config = babyDogePawsProperties.pinningDetector();
+        stream.enable(VIRTUAL_THREAD_PINNED).withThreshold(config.threshold()).withStackTrace();
+        stream.onEvent(VIRTUAL_THREAD_PINNED, this::onPinned);
+        stream.startAsync();
+        LOGGER.info("[虚拟线程钉住检测器已启动]-{}", config);
+    }
+
+    /**
+     * 应用关闭时停止订阅并打印汇总信息
+     */
+    @PreDestroy
+    public void shutdown() {
+        stream.close();
+        LOGGER.info("[虚拟线程钉住汇总]-{}ms:{}", TimeUnit.NANOSECONDS.toMillis(pinnedNanos.sum()), summary());
+    }
+
+    private void onPinned(RecordedEvent event) {
+        var frames = event.getStackTrace() == null ? List.<RecordedFrame>of() : event.getStackTrace().getFrames();
+        var site = frames.stream()
+                .filter(frame -> frame.getMethod().getType().getName().startsWith(PACKAGE))
+                .findFirst()
+                .map(VirtualThreadPinningDetector::format)
+                .orElse("unknown");
+        sites.computeIfAbsent(site, key -> new LongAdder()).increment();
+        pinnedNanos.add(event.getDuration().toNanos());
+        LOGGER.warn("[虚拟线程被钉住]-{}:{}ms:{}\n\tat {}",
+                event.getThread() == null ? null : event.getThread().getJavaName(),
+                event.getDuration().toMillis(),
+                site,
+                frames.stream().limit(config.stackDepth()).map(VirtualThreadPinningDetector::format).collect(Collectors.joining("\n\tat ")));
+    }
+
+    private Map<String, Long> summary() {
+        return sites.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().sum()));
+    }
+
+    private static String format(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2024 allurx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package red.zyc.babydogepaws.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import red.zyc.babydogepaws.game.BabyDogePawsApiRequest.Request;
+import red.zyc.babydogepaws.model.persistent.BabyDogePawsUser;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 业务指标，通过/actuator/prometheus暴露<br>
+ * 指标按照标签组合缓存起来，热点路径上只需要一次map查找
+ *
+ * @author allurx
+ */
+@Component
+public class BabyDogePawsMetrics {
+
+    private final MeterRegistry registry;
+    private final ConcurrentHashMap<ApiCallKey, Timer> apiCalls = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Timer> schedulerLateness = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Counter> minedPaws = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Counter> cardUpgradeSpend = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Counter> cardUpgradeProfit = new ConcurrentHashMap<>();
+
+    public BabyDogePawsMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * 记录一次游戏接口调用
+     *
+     * @param request      {@link Request}
+     * @param status       响应码，请求发送失败时为-1
+     * @param latencyNanos 请求从发送到收到响应的耗时
+     */
+    public void apiCall(Request request, int status, long latencyNanos) {
+        apiCalls.computeIfAbsent(new ApiCallKey(request, status), key -> Timer.builder("baby_doge_paws.api.requests")
+                        .description("游戏接口请求耗时")
+                        .tag("endpoint", key.request().name())
+                        .tag("status", key.status() < 0 ? "IO_ERROR" : String.valueOf(key.status()))
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(Duration.ofMillis(10))
+                        .maximumExpectedValue(Duration.ofSeconds(60))
+                        .register(registry))
+                .record(latencyNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录定时任务实际执行时间比预定时间晚了多久
+     *
+     * @param task          任务名称
+     * @param latenessNanos 延迟
+     */
+    public void schedulerLateness(String task, long latenessNanos) {
+        schedulerLateness.computeIfAbsent(task, key -> Timer.builder("baby_doge_paws.scheduler.lateness")
+                        .description("定时任务实际执行时间比预定时间晚了多久")
+                        .tag("scheduler", "TimingWheel")
+                        .tag("task", key)
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(Duration.ofMillis(1))
+                        .maximumExpectedValue(Duration.ofSeconds(30))
+                        .register(registry))
+                .record(latenessNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录挖到的paws，每小时的收益为increase(baby_doge_paws_mine_paws_total[1h])
+     *
+     * @param user  {@link BabyDogePawsUser}
+     * @param mined 本次挖到的paws
+     */
+    public void mined(BabyDogePawsUser user, long mined) {
+        minedPaws.computeIfAbsent(user.phoneNumber, phoneNumber -> Counter.builder("baby_doge_paws.mine.paws")
+                        .description("挖到的paws")
+                        .tag("user", phoneNumber)
+                        .register(registry))
+                .increment(mined);
+    }
+
+    /**
+     * 记录一次卡片升级的花费以及增加的每小时利润
+     *
+     * @param user   {@link BabyDogePawsUser}
+     * @param cost   花费
+     * @param profit 增加的每小时利润
+     */
+    public void cardUpgraded(BabyDogePawsUser user, BigDecimal cost, BigDecimal profit) {
+        cardUpgradeSpend.computeIfAbsent(user.phoneNumber, phoneNumber -> Counter.builder("baby_doge_paws.card.upgrade.spend")
+                        .description("升级卡片的花费")
+                        .tag("user", phoneNumber)
+                        .register(registry))
+                .increment(cost.doubleValue());
+        cardUpgradeProfit.computeIfAbsent(user.phoneNumber, phoneNumber -> Counter.builder("baby_doge_paws.card.upgrade.profit")
+                        .description("升级卡片增加的每小时利润")
+                        .tag("user", phoneNumber)
+                        .register(registry))
+                .increment(profit.doubleValue());
+    }
+
+    /**
+     * @param request {@link Request}
+     * @param status  响应码
+     */
+    private record ApiCallKey(Request request, int status) {
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2024 allurx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package red.zyc.babydogepaws.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+import red.zyc.babydogepaws.dao.DatabaseExecutor;
+import red.zyc.babydogepaws.dao.MiningInfoWriter;
+import red.zyc.babydogepaws.game.TaskRegistry;
+import red.zyc.babydogepaws.game.TimingWheel;
+import red.zyc.babydogepaws.game.UserTask;
+
+/**
+ * 把各个组件统计信息中的队列深度、任务数等瞬时值注册成gauge，抓取时才会读取
+ *
+ * @author allurx
+ */
+@Component
+public class StatsMeterBinder implements MeterBinder {
+
+    private final TimingWheel timingWheel;
+    private final TaskRegistry taskRegistry;
+    private final DatabaseExecutor databaseExecutor;
+    private final MiningInfoWriter miningInfoWriter;
+
+    public StatsMeterBinder(TimingWheel timingWheel, TaskRegistry taskRegistry, DatabaseExecutor databaseExecutor, MiningInfoWriter miningInfoWriter) {
+        this.timingWheel = timingWheel;
+        this.taskRegistry = taskRegistry;
+        this.databaseExecutor = databaseExecutor;
+        this.miningInfoWriter = miningInfoWriter;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("baby_doge_paws.scheduler.pending", timingWheel, wheel -> wheel.stats().pending())
+                .description("等待放入时间轮的任务数")
+                .tag("scheduler", "TimingWheel")
+                .register(registry);
+        for (UserTask.State state : UserTask.State.values()) {
+            Gauge.builder("baby_doge_paws.tasks", taskRegistry, tasks -> tasks.stats().states().getOrDefault(state, 0))
+                    .description("各个状态的用户任务数")
+                    .tag("state", state.name())
+                    .register(registry);
+        }
+        Gauge.builder("baby_doge_paws.database.executor.queue", databaseExecutor, executor -> executor.stats().queueDepth())
+                .description("等待执行的数据库操作数")
+                .register(registry);
+        Gauge.builder("baby_doge_paws.database.executor.active", databaseExecutor, executor -> executor.stats().active())
+                .description("正在执行数据库操作的线程数")
+                .register(registry);
+        Gauge.builder("baby_doge_paws.mining.info.writer.queue", miningInfoWriter, writer -> writer.stats().queueDepth())
+                .description("等待写入数据库的挖矿信息数")
+                .register(registry);
+    }
+}
@@ -3,9 +3,7 @@ package red.zyc.babydogepaws.model.persistent;
 import red.zyc.babydogepaws.common.util.ApplicationContextHolder;
 
 import java.math.BigDecimal;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.concurrent.ScheduledFuture;
+import java.time.LocalDateTime;
 
 /**
  * @author allurx
@@ -26,20 +24,45 @@ public class BabyDogePawsUser {
     public BigDecimal maximumCardUpgradePrice;
     public String userAgent;
 
+    /**
+     * 关联的所有表中最新的修改时间
+     */
+    public LocalDateTime modifiedTime;
+
     public volatile String xApiKey;
     public volatile String authParam;
-    public volatile Map<String, ScheduledFuture<?>> tasks = new HashMap<>();
-    public volatile boolean tasksCanceled = false;
 
+    /**
+     * 本地最近一次修改x-api-key或者授权参数的时间，为null说明这两个字段都来自数据库
+     */
+    public volatile LocalDateTime localModifiedTime;
     public String chromeDataDir() {
         return ApplicationContextHolder.getProperty("baby-doge-paws.chrome.root-data-dir", String.class) + areaCode + "-" + phoneNumber;
     }
 
     /**
-     * 取消用户的所有任务
+     * 将从数据库中刷新的字段合并到当前实例中，x-api-key以及授权参数只有在数据库中的修改时间晚于本地最近一次修改时才会被覆盖，
+     * 否则本地刚获取但还没有保存的值会被数据库中的旧值覆盖
+     *
+     * @param refreshed 从数据库中刷新的用户
      */
-    public void cancelAllTask() {
-        tasks.values().forEach(scheduledFuture -> scheduledFuture.cancel(false));
-        tasksCanceled = true;
+    public void merge(BabyDogePawsUser refreshed) {
+        country = refreshed.country;
+        areaCode = refreshed.areaCode;
+        phoneNumber = refreshed.phoneNumber;
+        source = refreshed.source;
+        banned = refreshed.banned;
+        passwordReset = refreshed.passwordReset;
+        emailReset = refreshed.emailReset;
+        inviteLink = refreshed.inviteLink;
+        friendNum = refreshed.friendNum;
+        maximumCardUpgradePrice = refreshed.maximumCardUpgradePrice;
+        userAgent = refreshed.userAgent;
+        modifiedTime = refreshed.modifiedTime;
+        var localModified = localModifiedTime;
+        if (localModified == null || refreshed.modifiedTime != null && refreshed.modifiedTime.isAfter(localModified)) {
+            xApiKey = refreshed.xApiKey;
+            authParam = refreshed.authParam;
+        }
     }
 }
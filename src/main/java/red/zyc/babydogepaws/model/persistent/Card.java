@@ -3,6 +3,7 @@ package red.zyc.babydogepaws.model.persistent;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import red.zyc.babydogepaws.model.request.UpgradeCard;
+import red.zyc.babydogepaws.model.response.CardsSnapshot;
 
 import java.time.LocalDateTime;
 
@@ -26,4 +27,14 @@ public class Card {
     public LocalDateTime createdTime;
     public LocalDateTime modifiedTime;
 
+    public static Card of(String categoryName, CardsSnapshot.CardInfo cardInfo) {
+        var card = new Card();
+        card.cardId = cardInfo.id();
+        card.cardName = cardInfo.name();
+        card.categoryId = cardInfo.categoryId();
+        card.categoryName = categoryName;
+        card.requirement = cardInfo.requirementJson();
+        return card;
+    }
+
 }
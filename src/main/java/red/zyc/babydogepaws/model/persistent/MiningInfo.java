@@ -23,6 +23,7 @@ import java.time.LocalDateTime;
 public class MiningInfo {
 
     public Integer id;
+    public Integer userId;
     public Integer earnPerTap;
     public Integer count;
     public Integer mined;
@@ -30,4 +31,16 @@ public class MiningInfo {
     public String draw;
     public LocalDateTime createdTime;
     public LocalDateTime modifiedTime;
+
+    public MiningInfo() {
+    }
+
+    public MiningInfo(Integer userId, int earnPerTap, int count, int mined, int remainingEnergy, String draw) {
+        this.userId = userId;
+        this.earnPerTap = earnPerTap;
+        this.count = count;
+        this.mined = mined;
+        this.remainingEnergy = remainingEnergy;
+        this.draw = draw;
+    }
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2024 allurx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package red.zyc.babydogepaws.model.persistent;
+
+import java.time.LocalDateTime;
+
+/**
+ * 用户定时任务的检查点，重启后定时任务从检查点恢复，而不是全部立即执行
+ *
+ * @author allurx
+ */
+public class TaskCheckpoint {
+
+    public Integer id;
+    public Integer userId;
+    public String task;
+    public LocalDateTime nextDueTime;
+    public Outcome lastOutcome;
+    public LocalDateTime createdTime;
+    public LocalDateTime modifiedTime;
+
+    public TaskCheckpoint() {
+    }
+
+    public TaskCheckpoint(Integer userId, String task, LocalDateTime nextDueTime, Outcome lastOutcome) {
+        this.userId = userId;
+        this.task = task;
+        this.nextDueTime = nextDueTime;
+        this.lastOutcome = lastOutcome;
+    }
+
+    /**
+     * 任务最近一次执行的结果
+     */
+    public enum Outcome {
+
+        /**
+         * 执行成功
+         */
+        SUCCESS,
+
+        /**
+         * 执行发生异常或者接口请求失败
+         */
+        FAILURE,
+
+        /**
+         * 游戏服务器不可用，跳过了本次执行
+         */
+        SKIPPED
+    }
+}
@@ -7,6 +7,7 @@ import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import red.zyc.babydogepaws.model.persistent.BabyDogePawsUser;
 import red.zyc.babydogepaws.model.persistent.Card;
+import red.zyc.babydogepaws.model.response.CardsSnapshot;
 
 import java.io.IOException;
 import java.math.BigDecimal;
@@ -34,7 +35,6 @@ public class UpgradeCard extends BabyDogePawsGameRequestParam {
         this.balance = balance;
         this.card = card;
         this.upgradeInfo = upgradeInfo;
-        this.upgradeInfo.buildJsonFunctionParam();
         this.available = available;
     }
 
@@ -54,7 +54,15 @@ public class UpgradeCard extends BabyDogePawsGameRequestParam {
         // 升级的信息map，需要在运行时转换成json字符串
         private final Function<UpgradeInfo, Map<String, BigDecimal>> func = o -> Map.of("cost", cost, "profit", profit);
 
-        // 构造mysql json_set函数的入参
+        public static UpgradeInfo of(CardsSnapshot.CardInfo cardInfo) {
+            var upgradeInfo = new UpgradeInfo();
+            upgradeInfo.level = cardInfo.level();
+            upgradeInfo.cost = cardInfo.cost();
+            upgradeInfo.profit = cardInfo.profit();
+            return upgradeInfo;
+        }
+
+        // 构造mysql json_set函数的入参，只有需要持久化卡片升级信息时才需要调用
         public void buildJsonFunctionParam() {
 
             // json的key如果是数字类型的字符串，必须手动加上双引号
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2024 allurx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package red.zyc.babydogepaws.model.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.math.BigDecimal;
+
+/**
+ * 授权接口响应
+ *
+ * @param accessToken   x-api-key
+ * @param balance       余额
+ * @param profitPerHour 每小时利润
+ * @param currentLeague 当前等级
+ * @author allurx
+ */
+public record AuthResult(@JsonProperty("access_token") String accessToken,
+                         @JsonProperty("balance") BigDecimal balance,
+                         @JsonProperty("profit_per_hour") int profitPerHour,
+                         @JsonProperty("current_league") int currentLeague) {
+
+    public AuthResult {
+        balance = balance == null ? BigDecimal.ZERO : balance;
+    }
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright 2024 allurx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package red.zyc.babydogepaws.model.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * 激励信息
+ *
+ * @param currentFullEnergyCount 当前剩余的全能量激励次数
+ * @author allurx
+ */
+public record BoostsInfo(@JsonProperty("current_full_energy_count") int currentFullEnergyCount) {
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2024 allurx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package red.zyc.babydogepaws.model.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 卡片快照，获取卡片列表接口只返回{@link CardCategory}列表，升级卡片接口还会返回升级后的余额
+ *
+ * @param balance 余额，获取卡片列表时为null
+ * @param cards   所有卡片分类
+ * @author allurx
+ */
+public record CardsSnapshot(@JsonProperty("balance") BigDecimal balance,
+                            @JsonProperty("cards") List<CardCategory> cards) {
+
+    public CardsSnapshot {
+        cards = cards == null ? List.of() : cards;
+    }
+
+    /**
+     * 卡片分类
+     *
+     * @param name  分类名称
+     * @param cards 分类下的卡片
+     */
+    public record CardCategory(@JsonProperty("name") String name,
+                               @JsonProperty("cards") List<CardInfo> cards) {
+
+        public CardCategory {
+            cards = cards == null ? List.of() : cards;
+        }
+    }
+
+    /**
+     * 卡片信息
+     *
+     * @param id              卡片id
+     * @param name            卡片名称
+     * @param categoryId      分类id
+     * @param requirement     升级条件，available变成true后就会变成null
+     * @param level           当前等级
+     * @param cost            升级花费
+     * @param profit          升级后增加的每小时利润
+     * @param curTotalFarming 当前每小时利润
+     * @param available       是否可以升级
+     */
+    public record CardInfo(@JsonProperty("id") Integer id,
+                           @JsonProperty("name") String name,
+                           @JsonProperty("category_id") Integer categoryId,
+                           @JsonProperty("requirement") JsonNode requirement,
+                           @JsonProperty("cur_level") String level,
+                           @JsonProperty("upgrade_cost") BigDecimal cost,
+                           @JsonProperty("farming_upgrade") BigDecimal profit,
+                           @JsonProperty("cur_total_farming") BigDecimal curTotalFarming,
+                           @JsonProperty("is_available") boolean available) {
+
+        /**
+         * @return 升级条件的json字符串
+         */
+        public String requirementJson() {
+            return requirement == null || requirement.isNull() ? null : requirement.toString();
+        }
+    }
+}
@@ -1,14 +1,16 @@
 package red.zyc.babydogepaws.model.response;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 /**
  * 任务
  *
  * @author allurx
  */
-public record Channel(long id,
-                      long reward,
-                      boolean isResolved,
-                      boolean isRewardTaken,
-                      boolean isPremium
+public record Channel(@JsonProperty("id") long id,
+                      @JsonProperty("reward") long reward,
+                      @JsonProperty("is_resolved") boolean isResolved,
+                      @JsonProperty("is_reward_taken") boolean isRewardTaken,
+                      @JsonProperty("is_premium") boolean isPremium
 ) {
 }
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2024 allurx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package red.zyc.babydogepaws.model.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.math.BigDecimal;
+
+/**
+ * 游戏中的用户信息，getMe以及挖矿接口都会返回
+ *
+ * @param balance       余额
+ * @param energy        剩余能量
+ * @param maxEnergy     最大能量
+ * @param earnPerTap    每次点击的收益
+ * @param profitPerHour 每小时利润
+ * @param currentLeague 当前等级
+ * @author allurx
+ */
+public record GameUser(@JsonProperty("balance") BigDecimal balance,
+                       @JsonProperty("energy") int energy,
+                       @JsonProperty("max_energy") int maxEnergy,
+                       @JsonProperty("earn_per_tap") int earnPerTap,
+                       @JsonProperty("profit_per_hour") int profitPerHour,
+                       @JsonProperty("current_league") int currentLeague) {
+
+    public GameUser {
+        balance = balance == null ? BigDecimal.ZERO : balance;
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2024 allurx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package red.zyc.babydogepaws.model.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * 挖矿接口响应
+ *
+ * @param user 挖矿后的用户信息
+ * @param mine 本次挖矿信息
+ * @param draw 本次挖矿获得的奖励信息
+ * @author allurx
+ */
+public record MineResult(@JsonProperty("user") GameUser user,
+                         @JsonProperty("mine") MineInfo mine,
+                         @JsonProperty("draw") JsonNode draw) {
+
+    /**
+     * @return 奖励信息的json字符串，没有奖励时为空对象
+     */
+    public String drawJson() {
+        return draw == null || draw.isNull() ? "{}" : draw.toString();
+    }
+
+    /**
+     * @param mined 本次挖矿的收益
+     */
+    public record MineInfo(@JsonProperty("mined") int mined) {
+    }
+}
@@ -25,10 +25,11 @@ public enum ResponseMessage {
     UN_AUTHORIZED("未授权", "F0002"),
     MISSING_USER("用户不存在", "F0003"),
 
-    ILLEGAL_MINE_COUNT("mineCountMin必须小于mineCountMax", "F0004"),
+    ILLEGAL_MINE_COUNT("mineCountMax必须大于0", "F0004"),
 
     ILLEGAL_FARM_AMOUNT("amount必须大于0", "F0005"),
     NO_COMPLETED_TASKS_WITH_REWARDS("没有已解决且已拿到奖励的任务", "F0005"),
+    FARM_PARTIALLY_FAILED("部分采集任务的请求失败了", "F0006"),
 
 
     ;
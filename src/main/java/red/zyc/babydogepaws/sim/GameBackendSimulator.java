@@ -0,0 +1,251 @@
+/*
+ * Copyright 2024 allurx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package red.zyc.babydogepaws.sim;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import red.zyc.babydogepaws.config.BabyDogePawsProperties;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static red.zyc.babydogepaws.common.util.JsonBodyHandler.OBJECT_MAPPER;
+
+/**
+ * 本地游戏服务器模拟器，只在sim环境下启动，用于离线压测定时任务以及接口层<br>
+ * 基于{@link HttpServer}实现了{@link red.zyc.babydogepaws.game.BabyDogePawsApiRequest.Request}用到的所有接口，
+ * 游戏规则见{@link SimulatedPlayer}。每个请求都会注入{@link BabyDogePawsProperties.Simulator#latency()}加上随机抖动的延迟，
+ * 并按照配置的概率随机返回401、429（带Retry-After）或者5xx，x-api-key过期后同样返回401
+ *
+ * @author allurx
+ */
+@Profile("sim")
+@Component
+public class GameBackendSimulator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GameBackendSimulator.class);
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {
+    };
+
+    private final BabyDogePawsProperties.Simulator config;
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("GameBackendSimulator-", 0).factory());
+    private final HttpServer server;
+
+    /**
+     * authParam -> 玩家
+     */
+    private final ConcurrentHashMap<String, SimulatedPlayer> players = new ConcurrentHashMap<>();
+
+    /**
+     * x-api-key -> 会话
+     */
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * 接口:响应码 -> 请求数
+     */
+    private final ConcurrentHashMap<String, LongAdder> responses = new ConcurrentHashMap<>();
+
+    public GameBackendSimulator(BabyDogePawsProperties babyDogePawsProperties) throws IOException {
+        this.config = babyDogePawsProperties.simulator();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), config.port()), 0);
+        this.server.setExecutor(executor);
+        this.server.createContext("/", this::handle);
+        this.server.start();
+        LOGGER.info("[游戏服务器模拟器已启动]-{}:{}", server.getAddress(), config);
+    }
+
+    /**
+     * 应用关闭时停止模拟器并打印每个接口的响应统计
+     */
+    @PreDestroy
+    public void shutdown() {
+        server.stop(1);
+        executor.close();
+        var summary = new TreeMap<String, Long>();
+        responses.forEach((key, count) -> summary.put(key, count.sum()));
+        LOGGER.info("[游戏服务器模拟器已关闭]-{}", summary);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            var route = exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath();
+            var body = exchange.getRequestBody().readAllBytes();
+            sleep();
+            var response = fault().orElseGet(() -> route(route, exchange, new String(body, StandardCharsets.UTF_8)));
+            responses.computeIfAbsent(route + ":" + response.status(), key -> new LongAdder()).increment();
+            var bytes = response.body() == null ? new byte[0] : OBJECT_MAPPER.writeValueAsBytes(response.body());
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            response.headers().forEach((name, value) -> exchange.getResponseHeaders().set(name, value));
+            exchange.sendResponseHeaders(response.status(), bytes.length == 0 ? -1 : bytes.length);
+            if (bytes.length > 0) {
+                exchange.getResponseBody().write(bytes);
+            }
+        } catch (Throwable t) {
+            LOGGER.error("[游戏服务器模拟器处理请求失败]-{}", exchange.getRequestURI(), t);
+        }
+    }
+
+    private Response route(String route, HttpExchange exchange, String body) {
+        if (route.equals("POST /authorize")) {
+            return authorize(body);
+        }
+        var token = String.valueOf(exchange.getRequestHeaders().getFirst("x-api-key"));
+        var session = sessions.get(token);
+        if (session == null) {
+            return Response.error(401, "invalid token");
+        }
+        if (session.expired(System.nanoTime())) {
+            sessions.remove(token, session);
+            return Response.error(401, "invalid token");
+        }
+        var player = session.player();
+        synchronized (player) {
+            return switch (route) {
+                case "GET /getMe" -> Response.ok(player.user());
+                case "POST /mine" -> {
+                    var mined = player.mine(intField(body, "count"));
+                    var result = new LinkedHashMap<String, Object>();
+                    result.put("user", player.user());
+                    result.put("mine", Map.of("mined", mined));
+                    result.put("draw", null);
+                    yield Response.ok(result);
+                }
+                case "GET /cards" -> Response.ok(player.cardCategories());
+                case "POST /cards" -> player.upgrade(intField(body, "id"))
+                        ? Response.ok(Map.of("balance", player.balance(), "cards", player.cardCategories()))
+                        : Response.error(400, "insufficient balance");
+                case "GET /boosts" -> Response.ok(Map.of("current_full_energy_count", player.fullEnergyBoosts()));
+                case "POST /boosts" -> player.useFullEnergyBoost()
+                        ? Response.ok(Map.of("current_full_energy_count", player.fullEnergyBoosts()))
+                        : Response.error(400, "no boosts left");
+                case "GET /channels" -> Response.ok(Map.of("channels", player.channels()));
+                case "POST /channels-resolve" -> player.resolveChannel(intField(body, "channel_id"))
+                        ? Response.ok(Map.of())
+                        : Response.error(404, "channel not found");
+                case "POST /channels" -> player.pickChannel(intField(body, "channel_id"))
+                        ? Response.ok(Map.of())
+                        : Response.error(400, "channel not resolved");
+                case "GET /promo", "POST /promo", "GET /getDailyBonuses", "POST /pickDailyBonus" -> Response.ok(Map.of());
+                case "GET /friends" -> Response.ok(Map.of("copy_link", "https://t.me/simulator?start=" + player.authParam.hashCode(), "friends_count", 0));
+                default -> Response.error(404, "not found");
+            };
+        }
+    }
+
+    private Response authorize(String authParam) {
+        var key = URLDecoder.decode(authParam, StandardCharsets.UTF_8);
+
+        // authParam为空时无法区分玩家，每次都当作新玩家
+        var player = key.isBlank() ? new SimulatedPlayer(key) : players.computeIfAbsent(key, SimulatedPlayer::new);
+        var token = UUID.randomUUID().toString();
+        var now = System.nanoTime();
+
+        // 重新授权后旧的token不会再被使用，签发新token时顺便清理所有过期的会话
+        sessions.values().removeIf(session -> session.expired(now));
+        sessions.put(token, new Session(player, now + config.tokenTtl().toNanos()));
+        synchronized (player) {
+            var user = player.user();
+            user.put("access_token", token);
+            return Response.ok(user);
+        }
+    }
+
+    /**
+     * @return 按照配置的概率随机注入的错误响应
+     */
+    private Optional<Response> fault() {
+        var random = ThreadLocalRandom.current().nextDouble();
+        if ((random -= config.unauthorizedRate()) < 0) {
+            return Optional.of(Response.error(401, "injected unauthorized"));
+        }
+        if ((random -= config.tooManyRequestsRate()) < 0) {
+            return Optional.of(new Response(429, Map.of("error", "injected too many requests"), Map.of("Retry-After", "1")));
+        }
+        if (random - config.serverErrorRate() < 0) {
+            return Optional.of(Response.error(ThreadLocalRandom.current().nextBoolean() ? 500 : 503, "injected server error"));
+        }
+        return Optional.empty();
+    }
+
+    private void sleep() {
+        var jitter = config.latencyJitter().toNanos();
+        var latency = config.latency().toNanos() + (jitter > 0 ? ThreadLocalRandom.current().nextLong(jitter) : 0);
+        if (latency > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static int intField(String body, String name) {
+        try {
+            var value = OBJECT_MAPPER.readValue(body, MAP_TYPE).get(name);
+            return value instanceof Number number ? number.intValue() : Integer.parseInt(String.valueOf(value));
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @param player         玩家
+     * @param expiresAtNanos x-api-key过期的时间
+     */
+    private record Session(SimulatedPlayer player, long expiresAtNanos) {
+
+        private boolean expired(long nowNanos) {
+            return nowNanos - expiresAtNanos > 0;
+        }
+    }
+
+    /**
+     * @param status  响应码
+     * @param body    响应body
+     * @param headers 额外的响应头
+     */
+    private record Response(int status, Object body, Map<String, String> headers) {
+
+        static Response ok(Object body) {
+            return new Response(200, body, Map.of());
+        }
+
+        static Response error(int status, String message) {
+            return new Response(status, Map.of("error", message), Map.of());
+        }
+    }
+}
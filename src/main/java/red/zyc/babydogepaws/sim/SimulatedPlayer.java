@@ -0,0 +1,270 @@
+/*
+ * Copyright 2024 allurx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package red.zyc.babydogepaws.sim;
+
+import red.zyc.babydogepaws.game.EnergyModel;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 模拟器中的一个玩家，所有方法都需要在玩家的监视器锁中调用<br>
+ * <ul>
+ *     <li>能量按照{@link EnergyModel#RECOVERY_PER_SECOND}每秒恢复直到最大能量，每次点击消耗{@link #EARN_PER_TAP}点能量</li>
+ *     <li>余额按照每小时利润持续增长</li>
+ *     <li>每张卡片升级的花费按照{@link #COST_GROWTH}、增加的每小时利润按照{@link #PROFIT_GROWTH}随等级增长</li>
+ *     <li>每天有{@link #FULL_ENERGY_BOOSTS}次全能量激励</li>
+ * </ul>
+ *
+ * @author allurx
+ */
+final class SimulatedPlayer {
+
+    static final int MAX_ENERGY = 1000;
+    static final int EARN_PER_TAP = 2;
+    static final int FULL_ENERGY_BOOSTS = 6;
+    static final double COST_GROWTH = 1.5;
+    static final double PROFIT_GROWTH = 1.2;
+
+    private static final String[] CATEGORIES = {"PR&Team", "Markets", "Legal", "Web3"};
+    private static final int CARDS_PER_CATEGORY = 8;
+    private static final int CHANNELS = 5;
+
+    final String authParam;
+    private long balance = 10_000;
+    private long profitPerHour;
+    private int energy = MAX_ENERGY;
+    private long energyObservedAtNanos = System.nanoTime();
+    private long profitAccruedAtNanos = System.nanoTime();
+    private int fullEnergyBoosts = FULL_ENERGY_BOOSTS;
+    private long boostsResetAtMillis = nextDay();
+    private final Map<Integer, SimulatedCard> cards = new LinkedHashMap<>();
+    private final Map<Long, SimulatedChannel> channels = new LinkedHashMap<>();
+
+    SimulatedPlayer(String authParam) {
+        this.authParam = authParam;
+        int id = 1;
+        for (int category = 0; category < CATEGORIES.length; category++) {
+            for (int i = 0; i < CARDS_PER_CATEGORY; i++, id++) {
+                var baseCost = 100L * (1 + i) * (1 + category);
+                var baseProfit = Math.max(1L, baseCost / (20 + 10L * ((id * 7) % 5)));
+                cards.put(id, new SimulatedCard(id, CATEGORIES[category], baseCost, baseProfit));
+            }
+        }
+        for (long i = 1; i <= CHANNELS; i++) {
+            channels.put(i, new SimulatedChannel(i, 5_000 * i, i == CHANNELS));
+        }
+    }
+
+    /**
+     * 挖矿，点击次数不会超过当前能量能够支撑的次数
+     *
+     * @param count 请求的点击次数
+     * @return 本次挖到的paws
+     */
+    long mine(int count) {
+        accrue();
+        var taps = Math.max(0, Math.min(count, energy / EARN_PER_TAP));
+        var mined = (long) taps * EARN_PER_TAP;
+        energy -= (int) mined;
+        balance += mined;
+        return mined;
+    }
+
+    /**
+     * 升级卡片
+     *
+     * @param cardId 卡片id
+     * @return 余额不够或者卡片不存在时为false
+     */
+    boolean upgrade(int cardId) {
+        accrue();
+        var card = cards.get(cardId);
+        if (card == null || balance < card.cost()) {
+            return false;
+        }
+        balance -= card.cost();
+        profitPerHour += card.profit();
+        card.level++;
+        return true;
+    }
+
+    /**
+     * 使用全能量激励
+     *
+     * @return 没有剩余次数时为false
+     */
+    boolean useFullEnergyBoost() {
+        accrue();
+        if (fullEnergyBoosts <= 0) {
+            return false;
+        }
+        fullEnergyBoosts--;
+        energy = MAX_ENERGY;
+        return true;
+    }
+
+    /**
+     * 解决任务
+     *
+     * @param channelId 任务id
+     * @return 任务不存在时为false
+     */
+    boolean resolveChannel(long channelId) {
+        var channel = channels.get(channelId);
+        if (channel == null) {
+            return false;
+        }
+        channel.resolved = true;
+        return true;
+    }
+
+    /**
+     * 采集任务奖励
+     *
+     * @param channelId 任务id
+     * @return 任务没有解决或者奖励已经领取过时为false
+     */
+    boolean pickChannel(long channelId) {
+        accrue();
+        var channel = channels.get(channelId);
+        if (channel == null || !channel.resolved || channel.rewardTaken) {
+            return false;
+        }
+        channel.rewardTaken = true;
+        balance += channel.reward;
+        return true;
+    }
+
+    Map<String, Object> user() {
+        accrue();
+        var user = new LinkedHashMap<String, Object>();
+        user.put("balance", balance);
+        user.put("energy", energy);
+        user.put("max_energy", MAX_ENERGY);
+        user.put("earn_per_tap", EARN_PER_TAP);
+        user.put("profit_per_hour", profitPerHour);
+        user.put("current_league", (int) Math.min(10, Math.log10(Math.max(1, balance))));
+        return user;
+    }
+
+    long balance() {
+        accrue();
+        return balance;
+    }
+
+    int fullEnergyBoosts() {
+        accrue();
+        return fullEnergyBoosts;
+    }
+
+    List<Map<String, Object>> cardCategories() {
+        var categories = new LinkedHashMap<String, List<Map<String, Object>>>();
+        cards.values().forEach(card -> categories.computeIfAbsent(card.category, key -> new ArrayList<>()).add(card.toJson()));
+        var result = new ArrayList<Map<String, Object>>();
+        categories.forEach((name, list) -> result.add(Map.of("name", name, "cards", list)));
+        return result;
+    }
+
+    List<Map<String, Object>> channels() {
+        return channels.values().stream().map(SimulatedChannel::toJson).toList();
+    }
+
+    /**
+     * 按照经过的时间恢复能量、累计每小时利润以及重置每天的激励次数
+     */
+    private void accrue() {
+        var now = System.nanoTime();
+        var recoveredSeconds = TimeUnit.NANOSECONDS.toSeconds(now - energyObservedAtNanos);
+        if (recoveredSeconds > 0) {
+            energy = (int) Math.min(MAX_ENERGY, energy + recoveredSeconds * EnergyModel.RECOVERY_PER_SECOND);
+            energyObservedAtNanos += TimeUnit.SECONDS.toNanos(recoveredSeconds);
+        }
+        var profitSeconds = TimeUnit.NANOSECONDS.toSeconds(now - profitAccruedAtNanos);
+        if (profitSeconds > 0) {
+            balance += profitPerHour * profitSeconds / 3600;
+            profitAccruedAtNanos += TimeUnit.SECONDS.toNanos(profitSeconds);
+        }
+        if (System.currentTimeMillis() >= boostsResetAtMillis) {
+            fullEnergyBoosts = FULL_ENERGY_BOOSTS;
+            boostsResetAtMillis = nextDay();
+        }
+    }
+
+    private static long nextDay() {
+        return System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1);
+    }
+
+    private static final class SimulatedCard {
+
+        private final int id;
+        private final String category;
+        private final long baseCost;
+        private final long baseProfit;
+        private int level;
+
+        private SimulatedCard(int id, String category, long baseCost, long baseProfit) {
+            this.id = id;
+            this.category = category;
+            this.baseCost = baseCost;
+            this.baseProfit = baseProfit;
+        }
+
+        private long cost() {
+            return (long) (baseCost * Math.pow(COST_GROWTH, level));
+        }
+
+        private long profit() {
+            return Math.max(1L, (long) (baseProfit * Math.pow(PROFIT_GROWTH, level)));
+        }
+
+        private Map<String, Object> toJson() {
+            var json = new LinkedHashMap<String, Object>();
+            json.put("id", id);
+            json.put("name", category + "-" + id);
+            json.put("category_id", id / CARDS_PER_CATEGORY);
+            json.put("requirement", null);
+            json.put("cur_level", String.valueOf(level));
+            json.put("upgrade_cost", cost());
+            json.put("farming_upgrade", profit());
+            json.put("cur_total_farming", level == 0 ? 0 : (long) (baseProfit * (Math.pow(PROFIT_GROWTH, level) - 1) / (PROFIT_GROWTH - 1)));
+            json.put("is_available", true);
+            return json;
+        }
+    }
+
+    private static final class SimulatedChannel {
+
+        private final long id;
+        private final long reward;
+        private final boolean premium;
+        private boolean resolved;
+        private boolean rewardTaken;
+
+        private SimulatedChannel(long id, long reward, boolean premium) {
+            this.id = id;
+            this.reward = reward;
+            this.premium = premium;
+        }
+
+        private Map<String, Object> toJson() {
+            return Map.of("id", id, "reward", reward, "is_resolved", resolved, "is_reward_taken", rewardTaken, "is_premium", premium);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+-- 用户定时任务的检查点，TaskCheckpointMapper#saveOrUpdateTaskCheckpoints依赖(user_id, task)唯一键进行upsert
+CREATE TABLE IF NOT EXISTS `task_checkpoint`
+(
+    `id`            INT         NOT NULL AUTO_INCREMENT,
+    `user_id`       INT         NOT NULL COMMENT '用户id',
+    `task`          VARCHAR(32) NOT NULL COMMENT '任务名称',
+    `next_due_time` DATETIME    NULL COMMENT '任务下一次执行的时间',
+    `last_outcome`  VARCHAR(16) NOT NULL COMMENT '任务最近一次执行的结果：SUCCESS、FAILURE、SKIPPED',
+    `created_time`  DATETIME    NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    `modified_time` DATETIME    NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    PRIMARY KEY (`id`),
+    UNIQUE KEY `uk_user_id_task` (`user_id`, `task`)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4 COMMENT ='用户定时任务检查点';
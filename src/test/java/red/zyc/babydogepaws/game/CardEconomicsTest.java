@@ -0,0 +1,71 @@
+package red.zyc.babydogepaws.game;
+
+import org.junit.jupiter.api.Test;
+import red.zyc.babydogepaws.model.response.CardsSnapshot;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author allurx
+ */
+class CardEconomicsTest {
+
+    private static CardsSnapshot.CardInfo card(int id, BigDecimal cost, BigDecimal profit, boolean available) {
+        return new CardsSnapshot.CardInfo(id, "card" + id, 1, null, "1", cost, profit, BigDecimal.ZERO, available);
+    }
+
+    @Test
+    void priceEqualsBigDecimalDivide() {
+        var random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            var cost = BigDecimal.valueOf(random.nextLong(1_000_000_000_000L));
+            var profit = BigDecimal.valueOf(1 + random.nextLong(i % 2 == 0 ? 1000 : 100_000_000L));
+            var economics = CardEconomics.of("category", card(i, cost, profit, true)).orElseThrow();
+            assertEquals(cost.divide(profit, 2, RoundingMode.HALF_UP), economics.priceDecimal());
+        }
+    }
+
+    @Test
+    void priceRoundsHalfUp() {
+        assertEquals(new BigDecimal("0.67"), CardEconomics.of("category", card(1, BigDecimal.valueOf(2), BigDecimal.valueOf(3), true)).orElseThrow().priceDecimal());
+        assertEquals(new BigDecimal("0.13"), CardEconomics.of("category", card(1, BigDecimal.valueOf(1), BigDecimal.valueOf(8), true)).orElseThrow().priceDecimal());
+        assertEquals(new BigDecimal("0.12"), CardEconomics.of("category", card(1, new BigDecimal("0.99"), BigDecimal.valueOf(8), true)).orElseThrow().priceDecimal());
+    }
+
+    @Test
+    void priceEqualsBigDecimalDivideWhenOverflow() {
+        var cost = BigDecimal.valueOf(Long.MAX_VALUE / 1000);
+        var profit = BigDecimal.valueOf(7);
+        assertEquals(cost.divide(profit, 2, RoundingMode.HALF_UP), CardEconomics.of("category", card(1, cost, profit, true)).orElseThrow().priceDecimal());
+    }
+
+    @Test
+    void unrankableCardsAreSkipped() {
+        assertTrue(CardEconomics.of("category", card(1, BigDecimal.TEN, BigDecimal.ONE, false)).isEmpty());
+        assertTrue(CardEconomics.of("category", card(1, BigDecimal.TEN, BigDecimal.ZERO, true)).isEmpty());
+        assertTrue(CardEconomics.of("category", card(1, null, BigDecimal.ONE, true)).isEmpty());
+        assertTrue(CardEconomics.of("category", card(1, new BigDecimal("0.001"), BigDecimal.ONE, true)).isEmpty());
+    }
+
+    @Test
+    void rankByPriceThenCost() {
+        var ranked = CardEconomics.rank(List.of(new CardsSnapshot.CardCategory("category", List.of(
+                card(1, BigDecimal.valueOf(2000), BigDecimal.valueOf(20), true),
+                card(2, BigDecimal.valueOf(1000), BigDecimal.valueOf(10), true),
+                card(3, BigDecimal.valueOf(500), BigDecimal.valueOf(10), true),
+                card(4, BigDecimal.valueOf(1), BigDecimal.valueOf(10), false)))));
+        assertEquals(List.of(3, 2, 1), ranked.stream().map(economics -> economics.card().id()).toList());
+    }
+
+    @Test
+    void floorBalance() {
+        assertEquals(12345, CardEconomics.floor(new BigDecimal("123.459")));
+        assertEquals(Long.MAX_VALUE, CardEconomics.floor(BigDecimal.valueOf(Long.MAX_VALUE)));
+    }
+}
@@ -0,0 +1,102 @@
+package red.zyc.babydogepaws.game;
+
+import org.junit.jupiter.api.Test;
+import red.zyc.babydogepaws.model.response.CardsSnapshot;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author allurx
+ */
+class CardUpgradePlannerTest {
+
+    private static CardsSnapshot.CardInfo card(int id, String level, long cost, long profit, boolean available) {
+        return new CardsSnapshot.CardInfo(id, "card" + id, 1, null, level, BigDecimal.valueOf(cost), BigDecimal.valueOf(profit), BigDecimal.ZERO, available);
+    }
+
+    private static List<CardsSnapshot.CardCategory> categories(CardsSnapshot.CardInfo... cards) {
+        return List.of(new CardsSnapshot.CardCategory("category", List.of(cards)));
+    }
+
+    @Test
+    void upgradeCheapestPriceFirst() {
+        var planner = new CardUpgradePlanner(BigDecimal.valueOf(10000), categories(
+                card(1, "1", 1000, 10, true),
+                card(2, "1", 500, 10, true),
+                card(3, "1", 100, 10, false),
+                card(4, "1", 600, 0, true)), BigDecimal.valueOf(500));
+
+        var plan = planner.plan();
+        assertEquals(List.of(2, 1), plan.stream().map(candidate -> candidate.card().id()).toList());
+        assertEquals(2, planner.next().orElseThrow().card().id());
+    }
+
+    @Test
+    void samePriceOrderedByCost() {
+        var planner = new CardUpgradePlanner(BigDecimal.valueOf(10000), categories(
+                card(1, "1", 2000, 20, true),
+                card(2, "1", 1000, 10, true)), BigDecimal.valueOf(500));
+
+        assertEquals(2, planner.next().orElseThrow().card().id());
+    }
+
+    @Test
+    void stopWhenCheapestPriceNotAffordable() {
+        var planner = new CardUpgradePlanner(BigDecimal.valueOf(600), categories(
+                card(1, "1", 1000, 100, true),
+                card(2, "1", 500, 1, true)), BigDecimal.valueOf(1000));
+
+        assertTrue(planner.next().isEmpty());
+        assertTrue(planner.plan().isEmpty());
+    }
+
+    @Test
+    void stopWhenPriceExceedsMaximum() {
+        var planner = new CardUpgradePlanner(BigDecimal.valueOf(10000), categories(
+                card(1, "1", 1000, 1, true)), BigDecimal.valueOf(500));
+
+        assertTrue(planner.next().isEmpty());
+    }
+
+    @Test
+    void onlyUpgradedCardIsUpdated() {
+        var planner = new CardUpgradePlanner(BigDecimal.valueOf(10000), categories(
+                card(1, "1", 100, 10, true),
+                card(2, "1", 300, 10, true)), BigDecimal.valueOf(500));
+
+        var first = planner.next().orElseThrow();
+        assertEquals(1, first.card().id());
+
+        // 升级后卡片1的价格变高了，卡片2的信息即使变了也不会被使用
+        var upgraded = planner.onUpgraded(first, new CardsSnapshot(BigDecimal.valueOf(9900), categories(
+                card(1, "2", 400, 10, true),
+                card(2, "1", 1, 10, true))));
+
+        assertEquals("2", upgraded.orElseThrow().level());
+        assertEquals(BigDecimal.valueOf(9900), planner.balance());
+
+        var second = planner.next().orElseThrow();
+        assertEquals(2, second.card().id());
+        assertEquals(BigDecimal.valueOf(300), second.card().cost());
+
+        planner.onUpgraded(second, new CardsSnapshot(BigDecimal.valueOf(9600), categories(
+                card(1, "2", 400, 10, true),
+                card(2, "2", 500, 10, true))));
+        assertEquals(List.of(1, 2), planner.plan().stream().map(candidate -> candidate.card().id()).toList());
+    }
+
+    @Test
+    void upgradedCardMissingFromResponseIsDropped() {
+        var planner = new CardUpgradePlanner(BigDecimal.valueOf(10000), categories(
+                card(1, "1", 100, 10, true)), BigDecimal.valueOf(500));
+
+        planner.onUpgraded(planner.next().orElseThrow(), new CardsSnapshot(null, List.of()));
+
+        assertEquals(BigDecimal.ZERO, planner.balance());
+        assertTrue(planner.next().isEmpty());
+    }
+}
@@ -0,0 +1,33 @@
+package red.zyc.babydogepaws.game;
+
+import org.junit.jupiter.api.Test;
+import red.zyc.babydogepaws.model.response.GameUser;
+import red.zyc.babydogepaws.model.response.MineResult;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * @author allurx
+ */
+class EnergyModelTest {
+
+    @Test
+    void mineResultWithoutUser() {
+        assertNull(EnergyModel.of((MineResult) null, System.nanoTime()));
+        assertNull(EnergyModel.of(new MineResult(null, new MineResult.MineInfo(10), null), System.nanoTime()));
+    }
+
+    @Test
+    void mineResultWithUser() {
+        var now = System.nanoTime();
+        var model = EnergyModel.of(new MineResult(new GameUser(BigDecimal.ONE, 100, 1000, 2, 0, 0), new MineResult.MineInfo(10), null), now);
+        assertEquals(new EnergyModel(100, 1000, 2, now), model);
+        assertEquals(50, model.tapsAt(now));
+        assertEquals(1000, model.energyAt(now + TimeUnit.SECONDS.toNanos(300)));
+        assertEquals(300L, model.untilFull(now).toSeconds());
+    }
+}
@@ -0,0 +1,111 @@
+package red.zyc.babydogepaws.game;
+
+import org.junit.jupiter.api.Test;
+import red.zyc.babydogepaws.common.util.JsonBodyHandler;
+import red.zyc.babydogepaws.config.BabyDogePawsProperties.ApiLogFormat;
+import red.zyc.babydogepaws.config.BabyDogePawsProperties.ApiLogPolicy;
+import red.zyc.babydogepaws.game.BabyDogePawsApiRequest.Request;
+import red.zyc.babydogepaws.model.response.MineResult;
+
+import javax.net.ssl.SSLSession;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author allurx
+ */
+class ResponseLogTest {
+
+    private static final String BODY = "x".repeat(10_000);
+
+    private static HttpResponse<String> response(int code, String body) {
+        var request = HttpRequest.newBuilder(URI.create("https://backend.babydogepawsbot.com/mine")).POST(HttpRequest.BodyPublishers.noBody()).build();
+        return new HttpResponse<>() {
+
+            @Override
+            public int statusCode() {
+                return code;
+            }
+
+            @Override
+            public HttpRequest request() {
+                return request;
+            }
+
+            @Override
+            public Optional<HttpResponse<String>> previousResponse() {
+                return Optional.empty();
+            }
+
+            @Override
+            public HttpHeaders headers() {
+                return HttpHeaders.of(Map.of(), (name, value) -> true);
+            }
+
+            @Override
+            public String body() {
+                return body;
+            }
+
+            @Override
+            public Optional<SSLSession> sslSession() {
+                return Optional.empty();
+            }
+
+            @Override
+            public URI uri() {
+                return request.uri();
+            }
+
+            @Override
+            public HttpClient.Version version() {
+                return HttpClient.Version.HTTP_1_1;
+            }
+        };
+    }
+
+    @Test
+    void compactFormat() {
+        var log = new ResponseLog(Request.MINE, response(429, "too many requests"), new ApiLogPolicy(1d, 100, ApiLogFormat.COMPACT), true);
+        assertEquals("429 POST /mine too many requests", log.toString());
+    }
+
+    @Test
+    void compactFormatTruncatesBody() {
+        var log = new ResponseLog(Request.MINE, response(500, BODY), new ApiLogPolicy(1d, 10, ApiLogFormat.COMPACT), true);
+        assertEquals("500 POST /mine xxxxxxxxxx...(10000 chars)", log.toString());
+    }
+
+    @Test
+    void mineSummaryWithoutUser() {
+        assertEquals("mined=null,balance=null,energy=null", Request.MINE.summarize(new MineResult(null, null, null)));
+    }
+
+    @Test
+    void jsonFormatTruncatesBody() throws Exception {
+        var log = new ResponseLog(Request.MINE, response(500, BODY), new ApiLogPolicy(1d, 100, ApiLogFormat.JSON), true);
+
+        // 只有body被截断，引号也算在body的长度中，截断后的body作为字符串输出，整条日志依旧是合法的json
+        assertEquals("{\"method\":\"POST\",\"uri\":\"https://backend.babydogepawsbot.com/mine\",\"code\":500,\"body\":\"\\\"" + "x".repeat(99) + "...(truncated)\"}", log.toString());
+        assertEquals("\"" + "x".repeat(99) + "...(truncated)", JsonBodyHandler.OBJECT_MAPPER.readTree(log.toString()).get("body").asText());
+    }
+
+    @Test
+    void jsonFormatWithinLimit() {
+        var log = new ResponseLog(Request.MINE, response(429, "too many requests"), new ApiLogPolicy(1d, 19, ApiLogFormat.JSON), true);
+        assertEquals("{\"method\":\"POST\",\"uri\":\"https://backend.babydogepawsbot.com/mine\",\"code\":429,\"body\":\"too many requests\"}", log.toString());
+    }
+
+    @Test
+    void jsonFormatWithoutBody() {
+        var log = new ResponseLog(Request.MINE, response(200, BODY), new ApiLogPolicy(1d, 100, ApiLogFormat.JSON), false);
+        assertEquals("{\"method\":\"POST\",\"uri\":\"https://backend.babydogepawsbot.com/mine\",\"code\":200,\"body\":\"ignored\"}", log.toString());
+    }
+}
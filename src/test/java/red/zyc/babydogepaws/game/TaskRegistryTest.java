@@ -0,0 +1,49 @@
+package red.zyc.babydogepaws.game;
+
+import org.junit.jupiter.api.Test;
+import red.zyc.babydogepaws.model.persistent.BabyDogePawsUser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author allurx
+ */
+class TaskRegistryTest {
+
+    @Test
+    void replacedTasksAreEvicted() {
+        var registry = new TaskRegistry();
+        var user = new BabyDogePawsUser();
+        user.id = 1;
+        for (int i = 0; i < 10; i++) {
+            registry.runtime(user).renewTasks();
+            registry.register(user, "Mine");
+            registry.register(user, "Authorize");
+        }
+
+        var states = registry.stats().states();
+        assertEquals(2, states.get(UserTask.State.SCHEDULED));
+        assertEquals(0, states.get(UserTask.State.CANCELLED));
+        assertEquals(2, registry.list().size());
+    }
+
+    @Test
+    void cancelledGenerationStopsTasks() {
+        var registry = new TaskRegistry();
+        var user = new BabyDogePawsUser();
+        user.id = 1;
+        registry.runtime(user).renewTasks();
+        var mine = registry.register(user, "Mine");
+
+        registry.runtime(user).cancelAllTask();
+        assertTrue(mine.isCancelled());
+        assertEquals(1, registry.stats().states().get(UserTask.State.CANCELLED));
+
+        registry.runtime(user).renewTasks();
+        assertTrue(mine.isCancelled());
+        registry.register(user, "Mine");
+        assertEquals(0, registry.stats().states().get(UserTask.State.CANCELLED));
+        assertEquals(1, registry.stats().states().get(UserTask.State.SCHEDULED));
+    }
+}
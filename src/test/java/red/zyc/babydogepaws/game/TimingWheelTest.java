@@ -0,0 +1,104 @@
+package red.zyc.babydogepaws.game;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import red.zyc.babydogepaws.config.BabyDogePawsProperties;
+import red.zyc.babydogepaws.metrics.BabyDogePawsMetrics;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author allurx
+ */
+class TimingWheelTest {
+
+    /**
+     * 每个tick 10ms，每层4个槽，3层的跨度分别是40ms、160ms、640ms
+     */
+    private static TimingWheel timingWheel() {
+        var properties = new BabyDogePawsProperties(null, null, null, null, null, null, null, null, null,
+                new BabyDogePawsProperties.TimingWheel(Duration.ofMillis(10), 4, 3),
+                null, null, null, null, null, null);
+        return new TimingWheel(properties, new BabyDogePawsMetrics(new SimpleMeterRegistry()));
+    }
+
+    @Test
+    void cascadeFromHigherLevels() throws InterruptedException {
+        var timingWheel = timingWheel();
+        try {
+            var start = System.nanoTime();
+            var latch = new CountDownLatch(2);
+            var elapsed = new long[2];
+
+            // 第2层的任务需要cascade两次才会被执行，超过最高层跨度的任务会被提前cascade下来重新放入
+            timingWheel.schedule("level2", null, 300, TimeUnit.MILLISECONDS, () -> {
+                elapsed[0] = System.nanoTime() - start;
+                latch.countDown();
+            });
+            timingWheel.schedule("overflow", null, 1000, TimeUnit.MILLISECONDS, () -> {
+                elapsed[1] = System.nanoTime() - start;
+                latch.countDown();
+            });
+
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertTrue(elapsed[0] >= TimeUnit.MILLISECONDS.toNanos(300));
+            assertTrue(elapsed[1] >= TimeUnit.MILLISECONDS.toNanos(1000));
+            assertEquals(2L, timingWheel.stats().dispatched());
+        } finally {
+            timingWheel.shutdown();
+        }
+    }
+
+    @Test
+    void cancelledTimeoutsAreDiscarded() throws InterruptedException {
+        var timingWheel = timingWheel();
+        try {
+            var runs = new AtomicInteger();
+            var handle = new TimingWheel.Handle();
+            timingWheel.schedule("timeout", null, 50, TimeUnit.MILLISECONDS, runs::incrementAndGet).cancel();
+            timingWheel.schedule("handle", handle, 200, TimeUnit.MILLISECONDS, runs::incrementAndGet);
+            handle.cancel();
+
+            var latch = new CountDownLatch(1);
+            timingWheel.schedule("live", new TimingWheel.Handle(), 300, TimeUnit.MILLISECONDS, latch::countDown);
+
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertEquals(0, runs.get());
+            assertEquals(2L, timingWheel.stats().cancelled());
+        } finally {
+            timingWheel.shutdown();
+        }
+    }
+
+    @Test
+    void fixedDelayRearmsUntilCancelled() throws InterruptedException {
+        var timingWheel = timingWheel();
+        try {
+            var runs = new AtomicInteger();
+            var latch = new CountDownLatch(3);
+            var handle = new TimingWheel.Handle();
+            var timeout = timingWheel.scheduleWithFixedDelay("fixedDelay", handle, 0, 20, TimeUnit.MILLISECONDS, () -> {
+                runs.incrementAndGet();
+                latch.countDown();
+            });
+
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            handle.cancel();
+            assertTrue(timeout.isCancelled());
+
+            // 取消时可能有一次执行正在进行中，之后就不会再放入时间轮了
+            Thread.sleep(100);
+            var cancelled = runs.get();
+            Thread.sleep(200);
+            assertEquals(cancelled, runs.get());
+        } finally {
+            timingWheel.shutdown();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package red.zyc.babydogepaws.game;
+
+import org.junit.jupiter.api.Test;
+import red.zyc.babydogepaws.model.persistent.BabyDogePawsUser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author allurx
+ */
+class UserRuntimeTest {
+
+    @Test
+    void renewTasksAfterCancel() {
+        var registry = new TaskRegistry();
+        var user = new BabyDogePawsUser();
+        user.id = 1;
+        var runtime = registry.runtime(user);
+        runtime.renewTasks();
+        var mine = registry.register(user, "Mine");
+        var oldHandle = runtime.handle();
+
+        runtime.cancelAllTask();
+        assertTrue(runtime.tasksCanceled());
+        assertTrue(oldHandle.isCancelled());
+        assertEquals(UserTask.State.CANCELLED, mine.state());
+
+        var newHandle = runtime.renewTasks();
+        assertFalse(runtime.tasksCanceled());
+        assertNotSame(oldHandle, newHandle);
+        assertFalse(newHandle.isCancelled());
+        assertTrue(oldHandle.isCancelled());
+        var renewed = registry.register(user, "Mine");
+        assertEquals(UserTask.State.SCHEDULED, renewed.state());
+        assertSame(newHandle, renewed.handle());
+        assertSame(oldHandle, mine.handle());
+    }
+
+    @Test
+    void renewTasksCancelsPreviousGeneration() {
+        var registry = new TaskRegistry();
+        var user = new BabyDogePawsUser();
+        user.id = 1;
+        var runtime = registry.runtime(user);
+        var oldHandle = runtime.renewTasks();
+        var mine = registry.register(user, "Mine");
+
+        runtime.renewTasks();
+        assertTrue(oldHandle.isCancelled());
+        assertEquals(UserTask.State.CANCELLED, mine.state());
+        assertFalse(runtime.tasksCanceled());
+    }
+
+    @Test
+    void runtimeSurvivesRefreshedUser() {
+        var registry = new TaskRegistry();
+        var user = new BabyDogePawsUser();
+        user.id = 1;
+        var refreshed = new BabyDogePawsUser();
+        refreshed.id = 1;
+        assertSame(registry.runtime(user), registry.runtime(refreshed));
+    }
+}
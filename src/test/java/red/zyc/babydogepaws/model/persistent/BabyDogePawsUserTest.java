@@ -0,0 +1,54 @@
+package red.zyc.babydogepaws.model.persistent;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author allurx
+ */
+class BabyDogePawsUserTest {
+
+    @Test
+    void mergeKeepsUnsavedLocalKey() {
+        var now = LocalDateTime.now();
+        var user = user("local", now.minusMinutes(1));
+        user.localModifiedTime = now;
+
+        user.merge(user("stale", now.minusSeconds(1)));
+        assertEquals("local", user.xApiKey);
+        assertEquals("local", user.authParam);
+    }
+
+    @Test
+    void mergeTakesNewerDatabaseKey() {
+        var now = LocalDateTime.now();
+        var user = user("local", now.minusMinutes(1));
+        user.localModifiedTime = now;
+
+        user.merge(user("remote", now.plusSeconds(1)));
+        assertEquals("remote", user.xApiKey);
+        assertEquals("remote", user.authParam);
+    }
+
+    @Test
+    void mergeTakesDatabaseKeyWithoutLocalWrite() {
+        var now = LocalDateTime.now();
+        var user = user("loaded", now.minusMinutes(1));
+
+        user.merge(user("remote", now.minusMinutes(2)));
+        assertEquals("remote", user.xApiKey);
+        assertEquals("remote", user.authParam);
+    }
+
+    private static BabyDogePawsUser user(String key, LocalDateTime modifiedTime) {
+        var user = new BabyDogePawsUser();
+        user.id = 1;
+        user.xApiKey = key;
+        user.authParam = key;
+        user.modifiedTime = modifiedTime;
+        return user;
+    }
+}